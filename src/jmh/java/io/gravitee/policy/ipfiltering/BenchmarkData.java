@@ -0,0 +1,102 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.ipfiltering;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic whitelist/blacklist entries and client addresses shared by the benchmarks.
+ */
+final class BenchmarkData {
+
+    enum EntryType {
+        EXACT,
+        CIDR,
+    }
+
+    enum IpMix {
+        IPV4,
+        IPV6,
+        MIXED,
+    }
+
+    private BenchmarkData() {}
+
+    static List<String> entries(int size, EntryType entryType, IpMix ipMix, long seed) {
+        final Random random = new Random(seed);
+        final List<String> entries = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            final boolean ipv6 = isIpv6(ipMix, random);
+            if (entryType == EntryType.CIDR) {
+                entries.add(ipv6 ? ipv6(random) + "/" + (32 + random.nextInt(97)) : ipv4(random) + "/" + (8 + random.nextInt(25)));
+            } else {
+                entries.add(ipv6 ? ipv6(random) : ipv4(random));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * @return client addresses, half of them being the address part of an entry and the other half being random
+     */
+    static String[] clientIps(int count, List<String> entries, IpMix ipMix, long seed) {
+        final Random random = new Random(seed);
+        final String[] ips = new String[count];
+        for (int i = 0; i < count; i++) {
+            if (i % 2 == 0) {
+                final String entry = entries.get(random.nextInt(entries.size()));
+                final int index = entry.indexOf('/');
+                ips[i] = index == -1 ? entry : entry.substring(0, index);
+            } else {
+                ips[i] = isIpv6(ipMix, random) ? ipv6(random) : ipv4(random);
+            }
+        }
+        return ips;
+    }
+
+    /**
+     * @return a X-Forwarded-For header value made of the given number of addresses
+     */
+    static String forwardedFor(int chainLength, IpMix ipMix, long seed) {
+        final Random random = new Random(seed);
+        final StringBuilder header = new StringBuilder();
+        for (int i = 0; i < chainLength; i++) {
+            if (i > 0) {
+                header.append(", ");
+            }
+            header.append(isIpv6(ipMix, random) ? ipv6(random) : ipv4(random));
+        }
+        return header.toString();
+    }
+
+    private static boolean isIpv6(IpMix ipMix, Random random) {
+        return ipMix == IpMix.IPV6 || (ipMix == IpMix.MIXED && random.nextBoolean());
+    }
+
+    private static String ipv4(Random random) {
+        return (1 + random.nextInt(223)) + "." + random.nextInt(256) + "." + random.nextInt(256) + "." + (1 + random.nextInt(254));
+    }
+
+    private static String ipv6(Random random) {
+        final StringBuilder ip = new StringBuilder("2001");
+        for (int i = 0; i < 7; i++) {
+            ip.append(':').append(Integer.toHexString(random.nextInt(0x10000)));
+        }
+        return ip.toString();
+    }
+}
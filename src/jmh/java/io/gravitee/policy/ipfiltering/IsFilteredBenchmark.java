@@ -0,0 +1,67 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.ipfiltering;
+
+import io.gravitee.policy.ipfiltering.BenchmarkData.EntryType;
+import io.gravitee.policy.ipfiltering.BenchmarkData.IpMix;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Cost of {@link IPFilteringPolicy#isFiltered(String, List)}, which compiles the given list on each call, and of
+ * {@link IPFilteringPolicy#isIpInFilterIpRange(String, String)}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IsFilteredBenchmark {
+
+    @Param({ "10", "1000", "100000" })
+    int listSize;
+
+    @Param({ "EXACT", "CIDR" })
+    EntryType entryType;
+
+    @Param({ "IPV4", "IPV6", "MIXED" })
+    IpMix ipMix;
+
+    private IPFilteringPolicy policy;
+    private List<String> entries;
+    private String[] clientIps;
+    private int next;
+
+    @Setup
+    public void setup() {
+        policy = new IPFilteringPolicy(new IPFilteringPolicyConfiguration());
+        entries = BenchmarkData.entries(listSize, entryType, ipMix, 42);
+        clientIps = BenchmarkData.clientIps(1024, entries, ipMix, 24);
+    }
+
+    @Benchmark
+    public boolean isFiltered() {
+        return policy.isFiltered(clientIps[next++ & 1023], entries);
+    }
+
+    @Benchmark
+    public boolean isIpInFilterIpRange() {
+        final int index = next++ & 1023;
+        return policy.isIpInFilterIpRange(clientIps[index], entries.get(index % entries.size()));
+    }
+}
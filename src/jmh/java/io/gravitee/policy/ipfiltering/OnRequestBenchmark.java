@@ -0,0 +1,85 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.ipfiltering;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import io.gravitee.gateway.api.ExecutionContext;
+import io.gravitee.gateway.api.Request;
+import io.gravitee.gateway.api.Response;
+import io.gravitee.gateway.api.http.HttpHeaderNames;
+import io.gravitee.gateway.api.http.HttpHeaders;
+import io.gravitee.policy.api.PolicyChain;
+import io.gravitee.policy.ipfiltering.BenchmarkData.EntryType;
+import io.gravitee.policy.ipfiltering.BenchmarkData.IpMix;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * End-to-end cost of {@link IPFilteringPolicy#onRequest(ExecutionContext, PolicyChain)} with IP and CIDR only lists, the client
+ * addresses being read from the X-Forwarded-For header.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OnRequestBenchmark {
+
+    @Param({ "10", "1000", "100000", "1000000" })
+    int listSize;
+
+    @Param({ "EXACT", "CIDR" })
+    EntryType entryType;
+
+    @Param({ "IPV4", "MIXED" })
+    IpMix ipMix;
+
+    @Param({ "1", "5", "20" })
+    int chainLength;
+
+    private IPFilteringPolicy policy;
+    private ExecutionContext executionContext;
+    private PolicyChain policyChain;
+
+    @Setup
+    public void setup() {
+        final List<String> blacklist = BenchmarkData.entries(listSize, entryType, ipMix, 42);
+        IPFilteringPolicyConfiguration configuration = new IPFilteringPolicyConfiguration();
+        configuration.setMatchAllFromXForwardedFor(true);
+        configuration.setBlacklistIps(blacklist);
+        policy = new IPFilteringPolicy(configuration);
+
+        // Stub only mocks do not record invocations, which would otherwise grow the heap during the run
+        Request request = mock(Request.class, withSettings().stubOnly());
+        when(request.headers()).thenReturn(
+            HttpHeaders.create().set(HttpHeaderNames.X_FORWARDED_FOR, BenchmarkData.forwardedFor(chainLength, ipMix, 24))
+        );
+        executionContext = mock(ExecutionContext.class, withSettings().stubOnly());
+        when(executionContext.request()).thenReturn(request);
+        when(executionContext.response()).thenReturn(mock(Response.class, withSettings().stubOnly()));
+        policyChain = mock(PolicyChain.class, withSettings().stubOnly());
+    }
+
+    @Benchmark
+    public void onRequest() {
+        policy.onRequest(executionContext, policyChain);
+    }
+}
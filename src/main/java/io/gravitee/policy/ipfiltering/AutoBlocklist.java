@@ -0,0 +1,200 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.ipfiltering;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.gravitee.gateway.api.ExecutionContext;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * AutoBlocklist temporarily bans the client IPs of a policy instance which are denied too often, so that clients hammering the deny
+ * path (e.g. scanners) are denied by a single hash lookup, before the lists are evaluated.
+ * <p>
+ * Denials are counted, and bans checked, per client IP: each address of a list of client IPs, such as an X-Forwarded-For header, is
+ * counted on its own, so that varying the other addresses of the list does not evade a ban. Denials are only counted against the
+ * evaluated client IPs, never against the proxies the request comes through, so that a proxy is never banned for its clients.
+ * Denials are counted with a {@link SlidingWindowCounter}. Both the counters and the bans are held in bounded caches: the least recently
+ * used entries are evicted first, and the counters of the client IPs no longer denied expire with their window.
+ * <p>
+ * If the policy instance shares its bans and a ban store is configured on the gateway, bans are shared through its {@link BanReplica}
+ * with the other policy instances sharing theirs, on any gateway node, and the bans made by operators are enforced as well. The policy
+ * instances which do not share their bans, or do not ban client IPs, never enforce the bans of the others.
+ */
+public final class AutoBlocklist {
+
+    private final int threshold;
+    private final long windowNanos;
+    private final long banMillis;
+    private final LongSupplier nanoTime;
+    private final LongSupplier currentTimeMillis;
+    private final Cache<IpAddress, SlidingWindowCounter> denials;
+    // The time, in milliseconds since the epoch, each ban expires at, if the bans are not shared
+    private final Cache<IpAddress, Long> bans;
+    private final boolean shared;
+    private volatile BanReplica replica;
+    private volatile boolean watching;
+    private final Predicate<IpAddress> banned = this::isBanned;
+
+    /**
+     * @param threshold The number of denials within the window which bans a client IP, <code>0</code> to never ban client IPs
+     * @param windowSeconds The length of the window denials are counted over
+     * @param banSeconds How long a client IP is banned
+     * @param maxEntries The maximum number of client IPs counted, and banned if the bans are not shared
+     * @param shared true to share the bans through the ban store configured on the gateway, if any
+     */
+    public AutoBlocklist(int threshold, long windowSeconds, long banSeconds, int maxEntries, boolean shared) {
+        this(threshold, windowSeconds, banSeconds, maxEntries, shared, null, System::nanoTime, System::currentTimeMillis);
+    }
+
+    /**
+     * @param replica The replica of the store the bans are shared through, <code>null</code> to use the store configured on the gateway
+     */
+    AutoBlocklist(
+        int threshold,
+        long windowSeconds,
+        long banSeconds,
+        int maxEntries,
+        boolean shared,
+        BanReplica replica,
+        LongSupplier nanoTime,
+        LongSupplier currentTimeMillis
+    ) {
+        this.threshold = threshold;
+        this.windowNanos = TimeUnit.SECONDS.toNanos(windowSeconds);
+        this.banMillis = TimeUnit.SECONDS.toMillis(banSeconds);
+        this.nanoTime = nanoTime;
+        this.currentTimeMillis = currentTimeMillis;
+        this.shared = threshold > 0 && shared;
+        this.replica = this.shared ? replica : null;
+        if (threshold > 0) {
+            // Once idle for two windows, a counter would count nothing anyway
+            this.denials = CacheBuilder.newBuilder().maximumSize(maxEntries).expireAfterAccess(2 * windowSeconds, TimeUnit.SECONDS).build();
+            this.bans = CacheBuilder.newBuilder().maximumSize(maxEntries).expireAfterWrite(banSeconds, TimeUnit.SECONDS).build();
+        } else {
+            this.denials = null;
+            this.bans = null;
+        }
+    }
+
+    /**
+     * @return the blocklist configured on the policy, which neither bans nor enforces any ban if client IPs must not be banned
+     */
+    public static AutoBlocklist of(IPFilteringPolicyConfiguration configuration) {
+        final boolean banning =
+            configuration.getAutoBanThreshold() > 0 &&
+            configuration.getAutoBanWindow() > 0 &&
+            configuration.getAutoBanDuration() > 0 &&
+            configuration.getAutoBanMaxEntries() > 0;
+        return new AutoBlocklist(
+            banning ? configuration.getAutoBanThreshold() : 0,
+            configuration.getAutoBanWindow(),
+            configuration.getAutoBanDuration(),
+            configuration.getAutoBanMaxEntries(),
+            configuration.isAutoBanShared()
+        );
+    }
+
+    /**
+     * @param ips The client IP, or the comma-separated list of the IPs of the client and its proxies, may be <code>null</code>
+     * @return the index of the first character of the first banned address, see {@link IpAddressTokenizer#tokenAt(CharSequence, int)},
+     * or <code>-1</code> if none is banned
+     */
+    public int indexOfBanned(CharSequence ips) {
+        if (bans == null) {
+            return -1;
+        }
+        return IpAddressTokenizer.indexOf(ips, banned);
+    }
+
+    public boolean isBanned(IpAddress address) {
+        if (bans == null) {
+            return false;
+        }
+        final long now = currentTimeMillis.getAsLong();
+        final BanReplica shared = replica;
+        if (shared != null) {
+            return shared.isBanned(address, now);
+        }
+        final Long until = bans.getIfPresent(address);
+        if (until == null) {
+            return false;
+        }
+        if (until > now) {
+            return true;
+        }
+        bans.invalidate(address);
+        return false;
+    }
+
+    /**
+     * Start sharing the bans with the other gateway nodes, if the bans are shared and a ban store is configured on the gateway.
+     */
+    public void watch(ExecutionContext ctx) {
+        if (!shared) {
+            return;
+        }
+        if (!watching) {
+            if (replica == null) {
+                replica = BanReplica.of(ctx);
+            }
+            watching = true;
+        }
+        final BanReplica shared = replica;
+        if (shared != null) {
+            shared.watch(ctx);
+        }
+    }
+
+    /**
+     * Count a denial of each of the given client IPs, and ban the ones which have been denied too often.
+     *
+     * @param clients The denied client IPs, which must not include the IPs of the proxies
+     * @return true if a client IP has just been banned
+     */
+    public boolean denied(List<IpAddress> clients) {
+        if (threshold <= 0) {
+            return false;
+        }
+        boolean banning = false;
+        for (IpAddress address : clients) {
+            if (address != null && denied(address)) {
+                banning = true;
+            }
+        }
+        return banning;
+    }
+
+    private boolean denied(IpAddress address) {
+        final long now = nanoTime.getAsLong();
+        final SlidingWindowCounter counter = denials.asMap().computeIfAbsent(address, key -> new SlidingWindowCounter(windowNanos, now));
+        if (counter.increment(now) < threshold) {
+            return false;
+        }
+        denials.invalidate(address);
+        final long until = currentTimeMillis.getAsLong() + banMillis;
+        final BanReplica shared = replica;
+        if (shared != null) {
+            shared.ban(address, until);
+        } else {
+            bans.put(address, until);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.ipfiltering;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.gravitee.gateway.api.ExecutionContext;
+import io.gravitee.node.api.configuration.Configuration;
+import io.gravitee.node.logging.NodeLoggerFactory;
+import io.vertx.core.Vertx;
+import java.io.IOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.slf4j.Logger;
+
+/**
+ * BanReplica is the local copy, on a gateway node, of the bans of a {@link BanStore}, so that checking whether a client IP is banned is a
+ * hash lookup whatever the number of nodes. It is shared by all the policy instances of the gateway using the same store.
+ * <p>
+ * The store is configured at the gateway level, as policies must not make the gateway write to arbitrary files. The replica holds a
+ * bounded number of bans: once full, the least recently used ones are evicted first.
+ * <p>
+ * Once a request has been processed, the replica is synchronized with the store on a Vert.x periodic timer, in a worker thread: the
+ * bans made on the node since the previous synchronization are written as a single batch, then the entries added to the store by any
+ * node since the previous synchronization are applied. If the store cannot be reached, the bans of the node are written on the next
+ * synchronization and the replica keeps the bans it holds. The timers are cancelled, and the replicas forgotten, when the plugin is
+ * deactivated (see {@link IpFilteringPolicyContext}).
+ */
+public final class BanReplica {
+
+    private static final Logger LOGGER = NodeLoggerFactory.getLogger(BanReplica.class);
+
+    private static final String FILE = "policy.ip-filtering.ban-store.file";
+    private static final String SYNC_INTERVAL = "policy.ip-filtering.ban-store.sync-interval";
+    private static final long DEFAULT_SYNC_INTERVAL = 5;
+    private static final String MAX_ENTRIES = "policy.ip-filtering.ban-store.max-entries";
+    private static final int DEFAULT_MAX_ENTRIES = 100_000;
+    private static final String MAX_SIZE = "policy.ip-filtering.ban-store.max-size";
+
+    private static final Map<Path, BanReplica> FILES = new ConcurrentHashMap<>();
+
+    private final BanStore store;
+    // The time, in milliseconds since the epoch, each ban expires at
+    private final Cache<IpAddress, Long> bans;
+    private final Queue<BanStore.BanEntry> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean watching = new AtomicBoolean();
+    private final AtomicBoolean syncing = new AtomicBoolean();
+    private volatile long version;
+    private volatile Vertx vertx;
+    private volatile long timerId;
+
+    /**
+     * @param maxEntries The maximum number of bans held
+     */
+    public BanReplica(BanStore store, int maxEntries) {
+        this.store = store;
+        this.bans = CacheBuilder.newBuilder().maximumSize(maxEntries).build();
+    }
+
+    /**
+     * @return the replica of the ban store configured on the gateway, or <code>null</code> if bans are not shared
+     */
+    public static BanReplica of(ExecutionContext ctx) {
+        final Configuration configuration = ctx.getComponent(Configuration.class);
+        final String file = configuration != null ? configuration.getProperty(FILE, String.class) : null;
+        if (file == null || file.isBlank()) {
+            return null;
+        }
+        final Integer maxEntries = configuration.getProperty(MAX_ENTRIES, Integer.class);
+        final Long maxSize = configuration.getProperty(MAX_SIZE, Long.class);
+        try {
+            return ofFile(
+                file.trim(),
+                maxEntries != null && maxEntries > 0 ? maxEntries : DEFAULT_MAX_ENTRIES,
+                maxSize != null && maxSize > 0 ? maxSize * 1024 * 1024 : FileBanStore.DEFAULT_MAX_SIZE
+            );
+        } catch (InvalidPathException e) {
+            LOGGER.error("Invalid ban store file {}, bans are not shared", file, e);
+            return null;
+        }
+    }
+
+    /**
+     * @return the replica of the {@link FileBanStore} of the given file, shared by all the policy instances of the gateway referring to it
+     */
+    static BanReplica ofFile(String path, int maxEntries, long maxSize) {
+        return FILES.computeIfAbsent(
+            Path.of(path).toAbsolutePath().normalize(),
+            p -> new BanReplica(new FileBanStore(p, maxSize), maxEntries)
+        );
+    }
+
+    /**
+     * @param nowMillis The current time, in milliseconds since the epoch
+     */
+    public boolean isBanned(IpAddress address, long nowMillis) {
+        final Long expiresAt = bans.getIfPresent(address);
+        return expiresAt != null && expiresAt > nowMillis;
+    }
+
+    /**
+     * Ban a client IP on this node at once, and on the other nodes once synchronized.
+     *
+     * @param expiresAt When the ban expires, in milliseconds since the epoch
+     */
+    public void ban(IpAddress address, long expiresAt) {
+        bans.put(address, expiresAt);
+        pending.add(new BanStore.BanEntry(address.toString(), expiresAt));
+    }
+
+    /**
+     * Start synchronizing with the store, once for all the policy instances using it.
+     */
+    public void watch(ExecutionContext ctx) {
+        if (watching.get()) {
+            return;
+        }
+        final Vertx vertx = ctx.getComponent(Vertx.class);
+        if (vertx == null || !watching.compareAndSet(false, true)) {
+            return;
+        }
+        final Configuration configuration = ctx.getComponent(Configuration.class);
+        final Long interval = configuration != null ? configuration.getProperty(SYNC_INTERVAL, Long.class) : null;
+        final long intervalMillis = TimeUnit.SECONDS.toMillis(interval != null && interval > 0 ? interval : DEFAULT_SYNC_INTERVAL);
+        vertx.executeBlocking(() -> sync(System.currentTimeMillis()), false);
+        timerId = vertx.setPeriodic(intervalMillis, id -> vertx.executeBlocking(() -> sync(System.currentTimeMillis()), false));
+        this.vertx = vertx;
+    }
+
+    /**
+     * Stop synchronizing the replicas with their store, and forget them, so that they are garbage collected once the plugin is deactivated.
+     */
+    static void closeAll() {
+        FILES.values().removeIf(replica -> {
+            replica.close();
+            return true;
+        });
+    }
+
+    private void close() {
+        final Vertx timerVertx = vertx;
+        if (timerVertx != null) {
+            timerVertx.cancelTimer(timerId);
+        }
+    }
+
+    /**
+     * Write the bans made on the node to the store, then apply the entries added to the store since the previous synchronization.
+     *
+     * @param nowMillis The current time, in milliseconds since the epoch
+     * @return <code>true</code> if entries have been applied
+     */
+    boolean sync(long nowMillis) {
+        if (!syncing.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            final List<BanStore.BanEntry> batch = new ArrayList<>();
+            for (BanStore.BanEntry entry = pending.poll(); entry != null; entry = pending.poll()) {
+                batch.add(entry);
+            }
+            try {
+                store.ban(batch);
+            } catch (IOException | RuntimeException e) {
+                LOGGER.error("Unable to write {} bans to the ban store, retrying on the next synchronization", batch.size(), e);
+                pending.addAll(batch);
+            }
+            boolean applied = false;
+            long read;
+            BanStore.BanDelta delta;
+            do {
+                // The store may return the changes in several parts
+                read = version;
+                delta = store.changesSince(read);
+                for (BanStore.BanEntry entry : delta.entries()) {
+                    final IpAddress address = IpAddress.parse(entry.ip());
+                    if (address == null) {
+                        LOGGER.warn("Ignoring the ban of {}, which is not an IP address", entry.ip());
+                    } else if (entry.expiresAt() > nowMillis) {
+                        bans.put(address, entry.expiresAt());
+                    } else {
+                        bans.invalidate(address);
+                    }
+                }
+                applied |= !delta.entries().isEmpty();
+                version = delta.version();
+            } while (delta.version() > read);
+            bans.asMap().values().removeIf(expiresAt -> expiresAt <= nowMillis);
+            return applied;
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("Unable to read the ban store, keeping the current bans", e);
+            return false;
+        } finally {
+            syncing.set(false);
+        }
+    }
+
+    int size() {
+        return (int) bans.size();
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.ipfiltering;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * BanStore holds the client IPs banned by all the gateway nodes, or by operators, so that each node can replicate them (see
+ * {@link BanReplica}). The store is only read and written in batches, off the request path.
+ * <p>
+ * The store is an ordered log of ban entries: each node reads the entries added since the version it last read. An entry supersedes
+ * the previous entries of the same client IP, and an entry expiring in the past lifts the ban.
+ * <p>
+ * Implementations must be thread-safe.
+ */
+public interface BanStore {
+    /**
+     * Add the given entries, as a single batch.
+     */
+    void ban(Collection<BanEntry> entries) throws IOException;
+
+    /**
+     * @param version The version of the store returned by the previous call, <code>0</code> to read all the entries
+     * @return the entries added since the given version, in order, or only the first ones if there are too many to read at once: the
+     * next ones are read from the returned version
+     */
+    BanDelta changesSince(long version) throws IOException;
+
+    /**
+     * @param ip The banned client IP, as formatted by {@link IpAddress#toString()}
+     * @param expiresAt When the ban expires, in milliseconds since the epoch
+     */
+    record BanEntry(String ip, long expiresAt) {}
+
+    /**
+     * @param version The version of the store to read the next changes from
+     * @param entries The entries added since the version read from
+     */
+    record BanDelta(long version, List<BanEntry> entries) {}
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.ipfiltering;
+
+/**
+ * Where the client IP is read from, when neither a custom IP address nor all the X-Forwarded-For addresses are checked.
+ */
+public enum ClientIpSource {
+    /**
+     * The address of the peer connected to the gateway.
+     */
+    REMOTE_ADDRESS,
+    /**
+     * The chain made of the X-Forwarded-For addresses followed by the address of the peer is walked right to left, skipping the
+     * trusted hops and the trusted proxies: the first remaining address is the client IP, and the only one checked against the lists.
+     */
+    X_FORWARDED_FOR,
+    /**
+     * Same as {@link #X_FORWARDED_FOR}, with the <code>for</code> nodes of the RFC 7239 <code>Forwarded</code> header.
+     */
+    FORWARDED,
+    /**
+     * The source address sent by a load balancer using the PROXY protocol. The gateway must accept the PROXY protocol, it then reports
+     * this address as the remote address of the request.
+     */
+    PROXY_PROTOCOL,
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.ipfiltering;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * DecisionCache keeps the decisions of a policy instance per client IP for a limited time, so that the few clients making most of the
+ * requests skip the lists and the host entries.
+ * <p>
+ * A decision is keyed by the compiled lists it was made with: once a list is compiled again (its expressions evaluate differently, its
+ * file is reloaded...), the decisions made with the previous one are no longer used. A decision that depends on host entries is also
+ * bound to the {@link LazyDnsClient#generation()} it was made at, and is no longer used once a resolution changes.
+ */
+public final class DecisionCache {
+
+    private static final long NO_DNS = -1;
+
+    private final Cache<Key, Decision> decisions;
+    private final LongSupplier dnsGeneration;
+
+    /**
+     * @param maxEntries The maximum number of cached decisions
+     * @param ttlSeconds How long a decision is reused
+     */
+    public DecisionCache(int maxEntries, long ttlSeconds) {
+        this(maxEntries, ttlSeconds, LazyDnsClient::generation);
+    }
+
+    DecisionCache(int maxEntries, long ttlSeconds, LongSupplier dnsGeneration) {
+        this.decisions = CacheBuilder.newBuilder().maximumSize(maxEntries).expireAfterWrite(ttlSeconds, TimeUnit.SECONDS).build();
+        this.dnsGeneration = dnsGeneration;
+    }
+
+    /**
+     * @return the cache configured on the policy, or <code>null</code> if decisions must not be cached
+     */
+    public static DecisionCache of(IPFilteringPolicyConfiguration configuration) {
+        if (configuration.getDecisionCacheMaxEntries() <= 0 || configuration.getDecisionCacheTtl() <= 0) {
+            return null;
+        }
+        return new DecisionCache(configuration.getDecisionCacheMaxEntries(), configuration.getDecisionCacheTtl());
+    }
+
+    /**
+     * @return the cached, still valid, decision or <code>null</code> if there is none
+     */
+    public Decision get(Key key) {
+        final Decision decision = decisions.getIfPresent(key);
+        if (decision == null || (decision.dnsGeneration != NO_DNS && decision.dnsGeneration != dnsGeneration.getAsLong())) {
+            return null;
+        }
+        return decision;
+    }
+
+    public void put(Key key, Decision decision) {
+        decisions.put(key, decision);
+    }
+
+    /**
+     * @return the generation to make a decision depending on host entries with, to read before resolving them
+     */
+    public long dnsGeneration() {
+        return dnsGeneration.getAsLong();
+    }
+
+    /**
+     * @param blackList The compiled blacklist
+     * @param whiteList The compiled whitelist
+     * @param ips The client IP, or the comma-separated list of the IPs of the client and its proxies
+     */
+    public record Key(IpFilterList blackList, IpFilterList whiteList, String ips) {}
+
+    public enum Outcome {
+        ALLOWED,
+        /**
+         * Denied as a client IP matches the blacklist
+         */
+        BLACKLISTED,
+        /**
+         * Denied as no client IP matches the whitelist
+         */
+        NOT_WHITELISTED,
+        /**
+         * Denied as the client IP is temporarily banned, see {@link AutoBlocklist}
+         */
+        BANNED,
+    }
+
+    /**
+     * @param outcome Whether the request may proceed, and why not
+     * @param deniedIp The IP reported to a denied client
+     * @param clients The client IPs a denial is counted against, see {@link AutoBlocklist}, never the IPs of the trusted proxies
+     * @param dnsGeneration The generation of the resolutions the decision depends on, if it depends on host entries
+     */
+    public record Decision(Outcome outcome, String deniedIp, List<IpAddress> clients, long dnsGeneration) {
+        public static final Decision ALLOWED = new Decision(Outcome.ALLOWED, null, List.of(), NO_DNS);
+
+        public static Decision allowed(long dnsGeneration) {
+            return new Decision(Outcome.ALLOWED, null, List.of(), dnsGeneration);
+        }
+
+        public static Decision blacklisted(String deniedIp, List<IpAddress> clients) {
+            return blacklisted(deniedIp, clients, NO_DNS);
+        }
+
+        public static Decision blacklisted(String deniedIp, List<IpAddress> clients, long dnsGeneration) {
+            return new Decision(Outcome.BLACKLISTED, deniedIp, clients, dnsGeneration);
+        }
+
+        public static Decision notWhitelisted(String deniedIp, List<IpAddress> clients) {
+            return notWhitelisted(deniedIp, clients, NO_DNS);
+        }
+
+        public static Decision notWhitelisted(String deniedIp, List<IpAddress> clients, long dnsGeneration) {
+            return new Decision(Outcome.NOT_WHITELISTED, deniedIp, clients, dnsGeneration);
+        }
+
+        public static Decision banned(String deniedIp) {
+            return new Decision(Outcome.BANNED, deniedIp, List.of(), NO_DNS);
+        }
+
+        public boolean allowed() {
+            return outcome == Outcome.ALLOWED;
+        }
+    }
+}
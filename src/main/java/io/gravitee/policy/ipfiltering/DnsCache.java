@@ -0,0 +1,187 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.ipfiltering;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.vertx.core.AsyncResult;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * DnsCache keeps the outcome of host name resolutions for a limited time, so that host entries of the whitelist or blacklist do not
+ * issue DNS queries for every request. Successful resolutions are kept for the configured TTL, failed ones for the negative TTL.
+ * <p>
+ * The cache is bounded: once full, the least recently used entries are evicted first, and entries are purged once they can no longer be
+ * served.
+ * <p>
+ * In refresh-ahead mode, the entries that have been read since they were stored are reported by {@link #dueForRefresh(long)} shortly
+ * before they expire so that they can be resolved again in the background. Meanwhile, an expired successful resolution keeps being
+ * served (stale-while-revalidate) for up to one more TTL, and a failed refresh does not replace it.
+ * <p>
+ * The last outcome of each host is remembered past its expiry, in a map bounded the same way, so that {@link #put} can tell whether a
+ * new resolution changes it even when the host is resolved again only once its entry expired.
+ */
+public final class DnsCache {
+
+    public static final DnsCache DISABLED = new DnsCache(0, 0, 0, false, System::nanoTime);
+
+    private final Cache<Key, Entry> entries;
+    private final Cache<Key, AsyncResult<ResolvedAddresses>> outcomes;
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+    private final int maxEntries;
+    private final boolean refreshAhead;
+    private final LongSupplier clock;
+
+    public DnsCache(long ttlSeconds, long negativeTtlSeconds, int maxEntries) {
+        this(ttlSeconds, negativeTtlSeconds, maxEntries, false);
+    }
+
+    public DnsCache(long ttlSeconds, long negativeTtlSeconds, int maxEntries, boolean refreshAhead) {
+        this(ttlSeconds, negativeTtlSeconds, maxEntries, refreshAhead, System::nanoTime);
+    }
+
+    DnsCache(long ttlSeconds, long negativeTtlSeconds, int maxEntries, LongSupplier clock) {
+        this(ttlSeconds, negativeTtlSeconds, maxEntries, false, clock);
+    }
+
+    DnsCache(long ttlSeconds, long negativeTtlSeconds, int maxEntries, boolean refreshAhead, LongSupplier clock) {
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.negativeTtlNanos = TimeUnit.SECONDS.toNanos(negativeTtlSeconds);
+        this.maxEntries = maxEntries;
+        this.refreshAhead = refreshAhead;
+        this.clock = clock;
+        // An entry is not served past its own expiry, this only purges the ones nobody reads again
+        final long lifetimeNanos = Math.max(0, Math.max(refreshAhead ? 2 * ttlNanos : ttlNanos, negativeTtlNanos));
+        this.entries = CacheBuilder.newBuilder()
+            .maximumSize(Math.max(0, maxEntries))
+            .expireAfterWrite(lifetimeNanos, TimeUnit.NANOSECONDS)
+            .ticker(ticker(clock))
+            .build();
+        this.outcomes = CacheBuilder.newBuilder().maximumSize(Math.max(0, maxEntries)).build();
+    }
+
+    static Ticker ticker(LongSupplier clock) {
+        return new Ticker() {
+            @Override
+            public long read() {
+                return clock.getAsLong();
+            }
+        };
+    }
+
+    /**
+     * @return the cached, still valid, resolution of the given host or <code>null</code> if there is none
+     */
+    public AsyncResult<ResolvedAddresses> get(String host, LookupIpVersion lookupIpVersion) {
+        if (maxEntries == 0) {
+            return null;
+        }
+        final Entry entry = entries.getIfPresent(new Key(host, lookupIpVersion));
+        if (entry == null || !isServable(entry, clock.getAsLong())) {
+            return null;
+        }
+        entry.accessed = true;
+        return entry.result;
+    }
+
+    /**
+     * @return <code>true</code> if the outcome of the resolution differs from the last one of this host, even if its entry expired since,
+     * or if the cache is disabled. A host resolved for the first time, or whose last outcome has been evicted, is not reported: the
+     * decisions made with its previous resolution only outlive it for the TTL of the decision cache.
+     */
+    public boolean put(String host, LookupIpVersion lookupIpVersion, AsyncResult<ResolvedAddresses> result) {
+        final long ttl = result.succeeded() ? ttlNanos : negativeTtlNanos;
+        if (maxEntries == 0 || ttl <= 0) {
+            return true;
+        }
+        final long now = clock.getAsLong();
+        final Key key = new Key(host, lookupIpVersion);
+        final Entry previous = entries.getIfPresent(key);
+        if (refreshAhead && result.failed() && previous != null && previous.result.succeeded() && isServable(previous, now)) {
+            // Keep serving the last known addresses rather than the failure of a refresh
+            return false;
+        }
+        entries.put(key, new Entry(result, now + ttl));
+        final AsyncResult<ResolvedAddresses> last = outcomes.asMap().put(key, result);
+        return last != null && !sameOutcome(last, result);
+    }
+
+    private static boolean sameOutcome(AsyncResult<ResolvedAddresses> previous, AsyncResult<ResolvedAddresses> result) {
+        if (previous.succeeded() != result.succeeded()) {
+            return false;
+        }
+        return result.failed() || previous.result().equals(result.result());
+    }
+
+    /**
+     * Purge the entries that can no longer be served and collect the ones that should be resolved again because they expire within the
+     * given delay and have been read since they were stored. Entries nobody reads are left to expire.
+     *
+     * @param withinNanos the delay before the next refresh
+     * @return the hosts to resolve again, always empty when the cache is not in refresh-ahead mode
+     */
+    public List<Key> dueForRefresh(long withinNanos) {
+        if (!refreshAhead || maxEntries == 0) {
+            return List.of();
+        }
+        final long now = clock.getAsLong();
+        final List<Key> due = new ArrayList<>();
+        entries.cleanUp();
+        entries.asMap().entrySet().removeIf(e -> {
+            final Entry entry = e.getValue();
+            if (!isServable(entry, now)) {
+                return true;
+            }
+            if (entry.accessed && entry.expiresAt - now <= withinNanos) {
+                entry.accessed = false;
+                due.add(e.getKey());
+            }
+            return false;
+        });
+        return due;
+    }
+
+    public int size() {
+        return (int) entries.size();
+    }
+
+    private boolean isServable(Entry entry, long now) {
+        final long remaining = entry.expiresAt - now;
+        if (remaining > 0) {
+            return true;
+        }
+        return refreshAhead && entry.result.succeeded() && remaining + ttlNanos > 0;
+    }
+
+    record Key(String host, LookupIpVersion lookupIpVersion) {}
+
+    private static final class Entry {
+
+        private final AsyncResult<ResolvedAddresses> result;
+        private final long expiresAt;
+        private volatile boolean accessed;
+
+        private Entry(AsyncResult<ResolvedAddresses> result, long expiresAt) {
+            this.result = result;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -27,6 +27,17 @@ public class DnsConfiguration {
     private static final String SYSTEM_DNS_PREFIX = "policy.ip-filtering.dns.";
     private static final String DNS_HOST = SYSTEM_DNS_PREFIX + "host";
     private static final String DNS_PORT = SYSTEM_DNS_PREFIX + "port";
+    private static final String DNS_CACHE_ENABLED = SYSTEM_DNS_PREFIX + "cache.enabled";
+    private static final String DNS_CACHE_TTL = SYSTEM_DNS_PREFIX + "cache.ttl";
+    private static final String DNS_CACHE_NEGATIVE_TTL = SYSTEM_DNS_PREFIX + "cache.negative-ttl";
+    private static final String DNS_CACHE_MAX_ENTRIES = SYSTEM_DNS_PREFIX + "cache.max-entries";
+    private static final String DNS_CACHE_REFRESH_AHEAD = SYSTEM_DNS_PREFIX + "cache.refresh-ahead";
+    private static final String DNS_CACHE_REFRESH_INTERVAL = SYSTEM_DNS_PREFIX + "cache.refresh-interval";
+
+    private static final long DEFAULT_CACHE_TTL = 60;
+    private static final long DEFAULT_CACHE_NEGATIVE_TTL = 5;
+    private static final int DEFAULT_CACHE_MAX_ENTRIES = 10_000;
+    private static final long DEFAULT_CACHE_REFRESH_INTERVAL = 10;
 
     private final String dnsServerHost;
 
@@ -34,11 +45,36 @@ public class DnsConfiguration {
 
     private final boolean hasGlobalConfiguration;
 
+    private final boolean cacheEnabled;
+
+    private final long cacheTtl;
+
+    private final long cacheNegativeTtl;
+
+    private final int cacheMaxEntries;
+
+    private final boolean cacheRefreshAhead;
+
+    private final long cacheRefreshInterval;
+
     public DnsConfiguration(Configuration globalConfiguration) {
         this.dnsServerHost = globalConfiguration.getProperty(DNS_HOST, String.class);
         Integer port = globalConfiguration.getProperty(DNS_PORT, Integer.class);
         this.dnsServerPort = (port != null) ? port : -1;
         hasGlobalConfiguration = dnsServerHost != null && dnsServerPort != -1;
+
+        Boolean enabled = globalConfiguration.getProperty(DNS_CACHE_ENABLED, Boolean.class);
+        this.cacheEnabled = enabled == null || enabled;
+        Long ttl = globalConfiguration.getProperty(DNS_CACHE_TTL, Long.class);
+        this.cacheTtl = (ttl != null) ? ttl : DEFAULT_CACHE_TTL;
+        Long negativeTtl = globalConfiguration.getProperty(DNS_CACHE_NEGATIVE_TTL, Long.class);
+        this.cacheNegativeTtl = (negativeTtl != null) ? negativeTtl : DEFAULT_CACHE_NEGATIVE_TTL;
+        Integer maxEntries = globalConfiguration.getProperty(DNS_CACHE_MAX_ENTRIES, Integer.class);
+        this.cacheMaxEntries = (maxEntries != null) ? maxEntries : DEFAULT_CACHE_MAX_ENTRIES;
+        Boolean refreshAhead = globalConfiguration.getProperty(DNS_CACHE_REFRESH_AHEAD, Boolean.class);
+        this.cacheRefreshAhead = refreshAhead != null && refreshAhead;
+        Long refreshInterval = globalConfiguration.getProperty(DNS_CACHE_REFRESH_INTERVAL, Long.class);
+        this.cacheRefreshInterval = (refreshInterval != null && refreshInterval > 0) ? refreshInterval : DEFAULT_CACHE_REFRESH_INTERVAL;
     }
 
     public DnsClientOptions getDnsClientOptions() {
@@ -49,4 +85,38 @@ public class DnsConfiguration {
         }
         return dnsClientOptions;
     }
+
+    /**
+     * @return the cache of resolved hosts, shared by all the policy instances of the gateway
+     */
+    public DnsCache getDnsCache() {
+        if (!cacheEnabled) {
+            return DnsCache.DISABLED;
+        }
+        return new DnsCache(cacheTtl, cacheNegativeTtl, cacheMaxEntries, cacheRefreshAhead);
+    }
+
+    /**
+     * @return the cache of verified host names of client IPs, shared by all the policy instances of the gateway
+     */
+    public ReverseDnsCache getReverseDnsCache() {
+        if (!cacheEnabled) {
+            return ReverseDnsCache.DISABLED;
+        }
+        return new ReverseDnsCache(cacheTtl, cacheMaxEntries);
+    }
+
+    /**
+     * @return <code>true</code> if cached hosts are resolved again in the background before they expire
+     */
+    public boolean isCacheRefreshAhead() {
+        return cacheEnabled && cacheRefreshAhead;
+    }
+
+    /**
+     * @return the period, in seconds, of the background refresh of cached hosts
+     */
+    public long getCacheRefreshInterval() {
+        return cacheRefreshInterval;
+    }
 }
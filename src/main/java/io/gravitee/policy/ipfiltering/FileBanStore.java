@@ -0,0 +1,260 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.ipfiltering;
+
+import io.gravitee.node.logging.NodeLoggerFactory;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+
+/**
+ * FileBanStore is a {@link BanStore} appended to a file, e.g. on a volume shared by the gateway nodes. Each line is an entry made of
+ * its expiration time, in milliseconds since the epoch, and of the client IP: <code>1767225600000 203.0.113.7</code>, <code>#</code>
+ * starting a comment. Operators may append lines to ban or, with an expiration time in the past, to lift the ban of a client IP.
+ * <p>
+ * The version of the store is the offset of the file read up to, so that each node only reads the lines appended since its previous
+ * read. The file is read in chunks, and at most {@link #MAX_DELTA_SIZE} bytes at once, whatever the number of lines appended. If the
+ * file is replaced or shrinks, it is read again from the start.
+ * <p>
+ * Once the file exceeds its maximum size, the node appending to it compacts it: the expired entries, and the entries superseded by a
+ * later one of the same client IP, are dropped, and the file is replaced by the remaining entries. The nodes append and compact under a
+ * lock on a <code>.lock</code> file next to the store; the lines appended by operators while the file is compacted are carried over.
+ */
+public final class FileBanStore implements BanStore {
+
+    private static final Logger LOGGER = NodeLoggerFactory.getLogger(FileBanStore.class);
+
+    /**
+     * The default size the file is compacted beyond, in bytes
+     */
+    static final long DEFAULT_MAX_SIZE = 16L * 1024 * 1024;
+
+    /**
+     * The maximum number of bytes read by {@link #changesSince(long)}, the next ones being read by the next call
+     */
+    static final int MAX_DELTA_SIZE = 1024 * 1024;
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    // File locks are held by the whole JVM, the stores of a JVM append and compact one at a time
+    private static final Object LOCK = new Object();
+
+    private final Path path;
+    private final Path lockPath;
+    private final long maxSize;
+    // The size the file is compacted beyond, twice its size once compacted if larger than the maximum size, guarded by LOCK
+    private long compactionSize;
+    // The identity of the file last read, to detect that it has been replaced
+    private volatile Object fileKey;
+
+    public FileBanStore(Path path) {
+        this(path, DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * @param maxSize The size of the file, in bytes, beyond which it is compacted
+     */
+    public FileBanStore(Path path, long maxSize) {
+        this.path = path.toAbsolutePath();
+        this.lockPath = this.path.resolveSibling(this.path.getFileName() + ".lock");
+        this.maxSize = maxSize;
+        this.compactionSize = maxSize;
+    }
+
+    @Override
+    public void ban(Collection<BanEntry> batch) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        final StringBuilder lines = new StringBuilder();
+        batch.forEach(entry -> appendLine(lines, entry));
+        synchronized (LOCK) {
+            try (
+                FileChannel lockChannel = FileChannel.open(lockPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                FileLock lock = lockChannel.lock()
+            ) {
+                // Written at once, so that the lines of concurrent writers do not interleave
+                Files.writeString(path, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                if (Files.size(path) > compactionSize) {
+                    compact(System.currentTimeMillis());
+                }
+            }
+        }
+    }
+
+    @Override
+    public BanDelta changesSince(long version) throws IOException {
+        try {
+            // Read before opening the file, so that a file replaced meanwhile is read again from the start on the next call
+            final Object key = Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                final Object previousKey = fileKey;
+                fileKey = key;
+                final boolean replaced = key != null && previousKey != null && !key.equals(previousKey);
+                final long from = replaced || channel.size() < version ? 0 : version;
+                final List<BanEntry> entries = new ArrayList<>();
+                return new BanDelta(read(channel, from, MAX_DELTA_SIZE, entries::add), entries);
+            }
+        } catch (NoSuchFileException e) {
+            return new BanDelta(0, List.of());
+        }
+    }
+
+    /**
+     * Replace the file by its entries still in force, i.e. drop the expired entries and the entries superseded by a later one of the
+     * same client IP. To be called under the lock of the store.
+     *
+     * @param nowMillis The current time, in milliseconds since the epoch
+     */
+    void compact(long nowMillis) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final Map<String, BanEntry> entries = new LinkedHashMap<>();
+            final long end = read(channel, 0, Long.MAX_VALUE, entry -> {
+                final IpAddress address = IpAddress.parse(entry.ip());
+                // Keyed by address whatever its notation, in the order of the latest entries
+                final String ip = address != null ? address.toString() : entry.ip();
+                entries.remove(ip);
+                entries.put(ip, entry);
+            });
+            final Path compacted = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+            try {
+                try (Writer writer = Files.newBufferedWriter(compacted, StandardCharsets.UTF_8)) {
+                    final StringBuilder line = new StringBuilder();
+                    for (BanEntry entry : entries.values()) {
+                        if (entry.expiresAt() > nowMillis) {
+                            line.setLength(0);
+                            writer.append(appendLine(line, entry));
+                        }
+                    }
+                }
+                Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(compacted);
+            }
+            // The lines appended by operators since the file has been read went to the replaced file
+            final long size = channel.size();
+            if (size > end) {
+                final ByteBuffer tail = ByteBuffer.allocate((int) Math.min(size - end, MAX_DELTA_SIZE));
+                while (tail.hasRemaining() && channel.read(tail, end + tail.position()) > 0) {
+                    // Read up to the size of the replaced file
+                }
+                try (FileChannel out = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                    tail.flip();
+                    while (tail.hasRemaining()) {
+                        out.write(tail);
+                    }
+                }
+            }
+            final long compactedSize = Files.size(path);
+            compactionSize = Math.max(maxSize, 2 * compactedSize);
+            LOGGER.debug("Ban store {} compacted from {} to {} bytes", path, end, compactedSize);
+        } catch (IOException e) {
+            LOGGER.warn("Unable to compact the ban store {}", path, e);
+        }
+    }
+
+    private static StringBuilder appendLine(StringBuilder lines, BanEntry entry) {
+        return lines.append(entry.expiresAt()).append(' ').append(entry.ip()).append('\n');
+    }
+
+    /**
+     * Parse the complete lines of the file from the given offset, one chunk at a time.
+     *
+     * @param from The offset to read from, at the start of a line
+     * @param maxBytes The maximum number of bytes to read
+     * @param entries The consumer of the entries read, in order
+     * @return the offset read up to, i.e. the end of the last complete line read
+     */
+    private static long read(FileChannel channel, long from, long maxBytes, Consumer<BanEntry> entries) throws IOException {
+        final long size = channel.size();
+        final long limit = size - from <= maxBytes ? size : from + maxBytes;
+        final ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE);
+        // The offset of the first byte of the buffer
+        long position = from;
+        boolean skipping = false;
+        while (position + buffer.position() < limit) {
+            buffer.limit((int) Math.min(buffer.capacity(), limit - position));
+            if (channel.read(buffer, position + buffer.position()) <= 0) {
+                break;
+            }
+            // A line being written is read once complete
+            int end = buffer.position();
+            while (end > 0 && buffer.get(end - 1) != '\n') {
+                end--;
+            }
+            if (end == 0) {
+                if (buffer.position() == buffer.capacity()) {
+                    // A line longer than a chunk is not an entry, it is skipped up to its end
+                    position += buffer.position();
+                    buffer.clear();
+                    skipping = true;
+                }
+                continue;
+            }
+            int start = 0;
+            if (skipping) {
+                while (buffer.get(start) != '\n') {
+                    start++;
+                }
+                start++;
+                skipping = false;
+            }
+            parse(new String(buffer.array(), start, end - start, StandardCharsets.UTF_8), entries);
+            position += end;
+            buffer.limit(buffer.position()).position(end);
+            buffer.compact();
+        }
+        return position;
+    }
+
+    private static void parse(String lines, Consumer<BanEntry> entries) {
+        int start = 0;
+        while (start < lines.length()) {
+            final int newline = lines.indexOf('\n', start);
+            int end = start;
+            while (end < newline && lines.charAt(end) != '#') {
+                end++;
+            }
+            final String line = lines.substring(start, end).trim();
+            start = newline + 1;
+            final int space = line.indexOf(' ');
+            if (space == -1) {
+                continue;
+            }
+            try {
+                entries.accept(new BanEntry(line.substring(space + 1).trim(), Long.parseLong(line.substring(0, space))));
+            } catch (NumberFormatException e) {
+                // Not an entry
+            }
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.ipfiltering;
+
+/**
+ * ForwardedHeader reads the client IP from an RFC 7239 <code>Forwarded</code> header, such as
+ * <code>for=192.0.2.60;proto=http;by=203.0.113.43, for="[2001:db8:cafe::17]:4711"</code>.
+ * <p>
+ * Like {@link IpAddressTokenizer}, the header is parsed in place: the elements are walked right to left, as a chain of proxies, and only
+ * the <code>for</code> node of each element is parsed. A port is ignored, and an obfuscated or <code>unknown</code> node is not an IP
+ * address.
+ */
+public final class ForwardedHeader {
+
+    public static final String NAME = "Forwarded";
+
+    private static final long NO_NODE = -1;
+
+    private ForwardedHeader() {}
+
+    /**
+     * @param value The value of the header
+     * @param skip The number of elements to skip whatever their node
+     * @param trusted The nodes to skip once the first <code>skip</code> elements are skipped
+     * @return the <code>for</code> node of the rightmost element which is not skipped, or of the leftmost element if they are all skipped,
+     * <code>null</code> if this element has no <code>for</code> parameter
+     */
+    public static String clientIp(CharSequence value, int skip, IpMatcher trusted) {
+        int to = value.length();
+        while (true) {
+            final int separator = lastIndexOfElementSeparator(value, to);
+            final long node = node(value, separator + 1, to);
+            if (separator == -1) {
+                return text(value, node);
+            }
+            if (skip > 0) {
+                skip--;
+            } else if (!trusted.matches(node == NO_NODE ? null : IpAddress.parse(value, start(node), end(node)))) {
+                return text(value, node);
+            }
+            to = separator;
+        }
+    }
+
+    private static int lastIndexOfElementSeparator(CharSequence value, int to) {
+        boolean quoted = false;
+        for (int i = to - 1; i >= 0; i--) {
+            final char c = value.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (c == ',' && !quoted) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the bounds of the address of the <code>for</code> node of the element, packed as <code>start &lt;&lt; 32 | end</code>, or
+     * {@link #NO_NODE} if the element has no <code>for</code> parameter
+     */
+    private static long node(CharSequence value, int from, int to) {
+        int pairStart = from;
+        boolean quoted = false;
+        for (int i = from; i <= to; i++) {
+            final char c = i == to ? ';' : value.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (c == ';' && !quoted) {
+                final int nameStart = IpAddressTokenizer.trimStart(value, pairStart, i);
+                if (
+                    i - nameStart > 4 &&
+                    Character.toLowerCase(value.charAt(nameStart)) == 'f' &&
+                    Character.toLowerCase(value.charAt(nameStart + 1)) == 'o' &&
+                    Character.toLowerCase(value.charAt(nameStart + 2)) == 'r' &&
+                    value.charAt(nameStart + 3) == '='
+                ) {
+                    return address(value, nameStart + 4, IpAddressTokenizer.trimEnd(value, nameStart + 4, i));
+                }
+                pairStart = i + 1;
+            }
+        }
+        return NO_NODE;
+    }
+
+    private static long address(CharSequence value, int start, int end) {
+        if (end - start >= 2 && value.charAt(start) == '"' && value.charAt(end - 1) == '"') {
+            start++;
+            end--;
+        }
+        if (start < end && value.charAt(start) == '[') {
+            // IPv6 node, with an optional port after the closing bracket
+            int close = start + 1;
+            while (close < end && value.charAt(close) != ']') {
+                close++;
+            }
+            return pack(start + 1, close);
+        }
+        int colon = -1;
+        for (int i = start; i < end; i++) {
+            if (value.charAt(i) == ':') {
+                if (colon != -1) {
+                    // More than one colon: an IPv6 address without brackets and without port
+                    return pack(start, end);
+                }
+                colon = i;
+            }
+        }
+        return pack(start, colon == -1 ? end : colon);
+    }
+
+    private static String text(CharSequence value, long node) {
+        return node == NO_NODE ? null : value.subSequence(start(node), end(node)).toString();
+    }
+
+    private static long pack(int start, int end) {
+        return ((long) start << 32) | end;
+    }
+
+    private static int start(long node) {
+        return (int) (node >>> 32);
+    }
+
+    private static int end(long node) {
+        return (int) node;
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.ipfiltering;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * HostFilteringDecision gathers the outcome of the host entries of a request and settles as soon as the result is known:
+ * <ul>
+ *     <li>the request is denied by the first blacklisted host resolving to the client IP (or failing to resolve),</li>
+ *     <li>the request is denied once all whitelisted hosts are checked and none of them resolves to the client IP,</li>
+ *     <li>the request is allowed once all blacklisted hosts are checked and the client IP is whitelisted.</li>
+ * </ul>
+ * Results arriving after the decision are ignored, so that a request never waits for DNS answers that cannot change its outcome.
+ */
+final class HostFilteringDecision {
+
+    private final AtomicInteger pendingBlacklistedHosts;
+    private final AtomicInteger pendingWhitelistedHosts;
+    private final AtomicBoolean decided = new AtomicBoolean();
+    private final Runnable onAllow;
+    private final Runnable onBlacklisted;
+    private final Runnable onNotWhitelisted;
+    private volatile boolean whitelisted;
+
+    /**
+     * @param blacklistedHosts the number of blacklisted hosts to check
+     * @param whitelistedHosts the number of whitelisted hosts to check
+     * @param whitelisted true if the client IP is already known to be whitelisted
+     * @param onBlacklisted run when the request is denied by a blacklisted host
+     * @param onNotWhitelisted run when the request is denied as no whitelisted host matches
+     */
+    HostFilteringDecision(
+        int blacklistedHosts,
+        int whitelistedHosts,
+        boolean whitelisted,
+        Runnable onAllow,
+        Runnable onBlacklisted,
+        Runnable onNotWhitelisted
+    ) {
+        this.pendingBlacklistedHosts = new AtomicInteger(blacklistedHosts);
+        this.pendingWhitelistedHosts = new AtomicInteger(whitelistedHosts);
+        this.whitelisted = whitelisted;
+        this.onAllow = onAllow;
+        this.onBlacklisted = onBlacklisted;
+        this.onNotWhitelisted = onNotWhitelisted;
+    }
+
+    /**
+     * @param deny true if the host resolves to the client IP or cannot be resolved
+     */
+    void blacklistedHostChecked(boolean deny) {
+        if (deny) {
+            settle(onBlacklisted);
+        } else if (pendingBlacklistedHosts.decrementAndGet() == 0 && whitelisted) {
+            settle(onAllow);
+        }
+    }
+
+    /**
+     * @param allow true if the host resolves to the client IP
+     */
+    void whitelistedHostChecked(boolean allow) {
+        if (allow) {
+            whitelisted = true;
+            if (pendingBlacklistedHosts.get() == 0) {
+                settle(onAllow);
+            }
+        } else if (pendingWhitelistedHosts.decrementAndGet() == 0 && !whitelisted) {
+            settle(onNotWhitelisted);
+        }
+    }
+
+    boolean isDecided() {
+        return decided.get();
+    }
+
+    private void settle(Runnable outcome) {
+        if (decided.compareAndSet(false, true)) {
+            outcome.run();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.ipfiltering;
+
+/**
+ * How the host entries of the lists are matched against the client IP.
+ */
+public enum HostMatchingMode {
+    /**
+     * Each host entry is resolved and its addresses are compared to the client IP. Best suited to a few host entries.
+     */
+    FORWARD,
+    /**
+     * The client IP is resolved to a host name (PTR record) confirmed by a forward resolution, and the name is compared to the host
+     * entries, which may be wildcard domains such as <code>*.crawler.example.com</code>. Only one DNS round trip is needed per client
+     * IP whatever the number of host entries, which makes it best suited to large host lists.
+     */
+    REVERSE,
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.ipfiltering;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * HostPatternSet matches a host name against host entries, either exact names or wildcard domains (<code>*.example.com</code> matches
+ * any sub-domain of <code>example.com</code>, but not <code>example.com</code> itself). Names are compared case-insensitively and
+ * without their trailing dot; matching costs one hash lookup per label of the host name, whatever the number of entries.
+ */
+public final class HostPatternSet {
+
+    public static final HostPatternSet EMPTY = new HostPatternSet(Set.of(), Set.of());
+
+    private static final String WILDCARD = "*.";
+
+    private final Set<String> names;
+    private final Set<String> domains;
+
+    private HostPatternSet(Set<String> names, Set<String> domains) {
+        this.names = names;
+        this.domains = domains;
+    }
+
+    public static HostPatternSet compile(Collection<String> hosts) {
+        if (hosts.isEmpty()) {
+            return EMPTY;
+        }
+        final Set<String> names = new HashSet<>();
+        final Set<String> domains = new HashSet<>();
+        for (String host : hosts) {
+            final String normalized = normalize(host);
+            if (normalized.startsWith(WILDCARD)) {
+                domains.add(normalized.substring(WILDCARD.length()));
+            } else if (!normalized.isEmpty()) {
+                names.add(normalized);
+            }
+        }
+        return new HostPatternSet(names, domains);
+    }
+
+    public boolean matches(String host) {
+        if (host == null || (names.isEmpty() && domains.isEmpty())) {
+            return false;
+        }
+        final String normalized = normalize(host);
+        if (names.contains(normalized)) {
+            return true;
+        }
+        if (!domains.isEmpty()) {
+            for (int dot = normalized.indexOf('.'); dot != -1; dot = normalized.indexOf('.', dot + 1)) {
+                if (domains.contains(normalized.substring(dot + 1))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public boolean isEmpty() {
+        return names.isEmpty() && domains.isEmpty();
+    }
+
+    static String normalize(String host) {
+        final String trimmed = host.trim();
+        final int end = trimmed.endsWith(".") ? trimmed.length() - 1 : trimmed.length();
+        return trimmed.substring(0, end).toLowerCase(Locale.ROOT);
+    }
+}
@@ -15,7 +15,6 @@
  */
 package io.gravitee.policy.ipfiltering;
 
-import static java.util.Collections.singletonList;
 import static java.util.stream.Collectors.toList;
 
 import io.gravitee.common.http.HttpStatusCode;
@@ -26,17 +25,7 @@ import io.gravitee.node.logging.NodeLoggerFactory;
 import io.gravitee.policy.api.PolicyChain;
 import io.gravitee.policy.api.PolicyResult;
 import io.gravitee.policy.api.annotations.OnRequest;
-import io.netty.handler.ipfilter.IpFilterRuleType;
-import io.netty.handler.ipfilter.IpSubnetFilterRule;
-import io.vertx.core.Future;
-import io.vertx.core.Promise;
-import java.net.InetAddress;
-import java.net.InetSocketAddress;
-import java.net.UnknownHostException;
 import java.util.*;
-import java.util.stream.Collectors;
-import org.apache.commons.net.util.SubnetUtils;
-import org.apache.commons.validator.routines.InetAddressValidator;
 import org.slf4j.Logger;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
@@ -50,8 +39,47 @@ public class IPFilteringPolicy {
 
     private static final Logger LOGGER = NodeLoggerFactory.getLogger(IPFilteringPolicy.class);
 
+    private static final IpFilteringMetrics METRICS = IpFilteringMetrics.INSTANCE;
+
+    /**
+     * Attribute set to the outcome of the policy: ALLOWED, BLACKLISTED, NOT_WHITELISTED or BANNED
+     */
+    public static final String ATTR_DECISION = ExecutionContext.ATTR_PREFIX + "ip-filtering.decision";
+
+    /**
+     * Attribute set to what the decision comes from, if anything matched: ip, cidr, host, cache or auto-ban
+     */
+    public static final String ATTR_SOURCE = ExecutionContext.ATTR_PREFIX + "ip-filtering.source";
+
+    /**
+     * Attribute set to the matched entry: the IP or CIDR as configured (or the merged range with the RANGE_TABLE strategy), the host
+     * entry, or the verified host name of the client in REVERSE host matching mode
+     */
+    public static final String ATTR_RULE = ExecutionContext.ATTR_PREFIX + "ip-filtering.rule";
+
+    /**
+     * Attribute set to the time taken to decide, in nanoseconds, DNS resolutions included
+     */
+    public static final String ATTR_EVALUATION_TIME = ExecutionContext.ATTR_PREFIX + "ip-filtering.evaluation-time";
+
+    static final String SOURCE_IP = "ip";
+    static final String SOURCE_CIDR = "cidr";
+    static final String SOURCE_HOST = "host";
+    static final String SOURCE_CACHE = "cache";
+    static final String SOURCE_AUTO_BAN = "auto-ban";
+
     private final IPFilteringPolicyConfiguration configuration;
 
+    private final IpFilterListTemplate blacklist;
+
+    private final IpFilterListTemplate whitelist;
+
+    private final IpMatcher trustedProxies;
+
+    private final DecisionCache decisions;
+
+    private final AutoBlocklist bans;
+
     /**
      * Create a new IPFiltering Policy instance based on its associated configuration
      *
@@ -59,143 +87,356 @@ public class IPFilteringPolicy {
      */
     public IPFilteringPolicy(IPFilteringPolicyConfiguration configuration) {
         this.configuration = configuration;
+        this.blacklist = IpFilterListTemplate.compile(
+            configuration.getBlacklistIps(),
+            configuration.getBlacklistFile(),
+            configuration.getIsInclusiveHostCount(),
+            configuration.getMatchStrategy()
+        );
+        this.whitelist = IpFilterListTemplate.compile(
+            configuration.getWhitelistIps(),
+            configuration.getWhitelistFile(),
+            configuration.getIsInclusiveHostCount(),
+            configuration.getMatchStrategy()
+        );
+        this.trustedProxies = compileTrustedProxies(configuration.getTrustedProxies());
+        this.decisions = DecisionCache.of(configuration);
+        this.bans = AutoBlocklist.of(configuration);
+    }
+
+    private static IpMatcher compileTrustedProxies(List<String> entries) {
+        if (entries == null || entries.isEmpty()) {
+            return IpMatcher.NONE;
+        }
+        final Set<String> proxies = new LinkedHashSet<>();
+        entries.stream().filter(Objects::nonNull).forEach(entry -> proxies.addAll(IpAddressTokenizer.split(entry)));
+        proxies.remove("");
+        // A CIDR of trusted proxies includes its network and broadcast addresses
+        return IpFilterList.compile(proxies, true, IpMatchStrategy.TRIE).ipMatcher();
     }
 
     @OnRequest
     public void onRequest(ExecutionContext executionContext, PolicyChain policyChain) {
-        final List<String> ips = extractIps(executionContext);
-        final List<Future<?>> futures = new ArrayList<>();
-
-        var blackList = computeList(executionContext, configuration.getBlacklistIps());
-        var whiteList = computeList(executionContext, configuration.getWhitelistIps());
-
-        if (!blackList.isEmpty()) {
-            final List<String> filteredIps = new ArrayList<>();
-            final List<String> filteredHosts = new ArrayList<>();
-            processFilteredLists(blackList, filteredIps, filteredHosts);
-            Optional<String> matchingIp = ips
-                .stream()
-                .filter(ip -> isFiltered(ip, filteredIps))
-                .findFirst();
-            if (matchingIp.isPresent()) {
-                fail(policyChain, matchingIp.get());
+        final long start = System.nanoTime();
+        final ClientIps client = clientIps(executionContext);
+        final CharSequence ips = client.value();
+        final String clientIps = ips != null ? ips.toString() : null;
+        bans.watch(executionContext);
+        final int banned = bans.indexOfBanned(ips);
+        if (banned != -1) {
+            // Banned client IPs are denied before evaluating the lists
+            executionContext.setAttribute(ATTR_SOURCE, SOURCE_AUTO_BAN);
+            apply(DecisionCache.Decision.banned(IpAddressTokenizer.tokenAt(ips, banned)), start, policyChain, executionContext);
+            return;
+        }
+
+        final IpFilterList blackList = blacklist.resolve(executionContext);
+        final IpFilterList whiteList = whitelist.resolve(executionContext);
+
+        final DecisionCache.Key key = decisions != null && clientIps != null
+            ? new DecisionCache.Key(blackList, whiteList, clientIps)
+            : null;
+        final Evaluation evaluation = new Evaluation(key, start);
+        if (key != null) {
+            final DecisionCache.Decision cached = decisions.get(key);
+            if (cached != null) {
+                METRICS.decisionCacheHit();
+                executionContext.setAttribute(ATTR_SOURCE, SOURCE_CACHE);
+                countDenial(cached);
+                apply(cached, start, policyChain, executionContext);
                 return;
             }
-            if (!filteredHosts.isEmpty()) {
-                blacklistFilteredHostsProcess(filteredHosts, futures, executionContext, ips);
+            METRICS.decisionCacheMiss();
+        }
+
+        final long matchStart = System.nanoTime();
+        final IpAddressTokenizer.Match blacklisted = IpAddressTokenizer.firstMatch(ips, blackList.ipMatcher());
+        final IpAddressTokenizer.Match whitelistedBy = blacklisted != null
+            ? null
+            : IpAddressTokenizer.firstMatch(ips, whiteList.ipMatcher());
+        METRICS.matchTime(System.nanoTime() - matchStart);
+
+        if (blacklisted != null) {
+            matched(executionContext, blacklisted.rule());
+            final String deniedIp = IpAddressTokenizer.tokenAt(ips, blacklisted.index());
+            final List<IpAddress> clients = deniedClients(client, List.of(IpAddress.parse(deniedIp)));
+            decide(evaluation, DecisionCache.Decision.blacklisted(deniedIp, clients), policyChain, executionContext);
+            return;
+        }
+
+        if (whitelistedBy != null) {
+            matched(executionContext, whitelistedBy.rule());
+        }
+        final boolean whitelisted = whiteList.isEmpty() || whitelistedBy != null;
+        if (!whitelisted && whiteList.hosts().isEmpty()) {
+            final String deniedIps = String.join(", ", IpAddressTokenizer.split(ips));
+            final List<IpAddress> clients = deniedClients(client, IpAddressTokenizer.parse(ips));
+            decide(evaluation, DecisionCache.Decision.notWhitelisted(deniedIps, clients), policyChain, executionContext);
+            return;
+        }
+
+        if (whitelisted && blackList.hosts().isEmpty()) {
+            // The decision does not depend on any host entry, no need to go through DNS
+            decide(evaluation, DecisionCache.Decision.ALLOWED, policyChain, executionContext);
+            return;
+        }
+
+        final List<IpAddress> addresses = IpAddressTokenizer.parse(ips);
+        final List<IpAddress> clients = deniedClients(client, addresses);
+        if (configuration.getHostMatchingMode() == HostMatchingMode.REVERSE) {
+            reverseFilteredHostsProcess(
+                blackList.hostPatterns(),
+                whitelisted ? HostPatternSet.EMPTY : whiteList.hostPatterns(),
+                whitelisted,
+                policyChain,
+                executionContext,
+                addresses,
+                clients,
+                evaluation
+            );
+            return;
+        }
+
+        final HostFilteringDecision decision = newDecision(
+            blackList.hosts().size(),
+            whitelisted ? 0 : whiteList.hosts().size(),
+            whitelisted,
+            policyChain,
+            executionContext,
+            clients,
+            evaluation
+        );
+        if (!blackList.hosts().isEmpty()) {
+            blacklistFilteredHostsProcess(blackList.hosts(), decision, executionContext, addresses);
+        }
+        if (!whitelisted) {
+            whitelistFilteredHostsProcess(whiteList.hosts(), decision, executionContext, addresses);
+        }
+    }
+
+    private HostFilteringDecision newDecision(
+        int blacklistedHosts,
+        int whitelistedHosts,
+        boolean whitelisted,
+        PolicyChain policyChain,
+        ExecutionContext executionContext,
+        List<IpAddress> clients,
+        Evaluation evaluation
+    ) {
+        // Read before resolving any host, so that a resolution changing meanwhile invalidates the decision
+        final long dnsGeneration = evaluation.key() != null ? decisions.dnsGeneration() : 0;
+        return new HostFilteringDecision(
+            blacklistedHosts,
+            whitelistedHosts,
+            whitelisted,
+            () -> decide(evaluation, DecisionCache.Decision.allowed(dnsGeneration), policyChain, executionContext),
+            () -> {
+                final String remoteAddress = executionContext.request().remoteAddress();
+                final DecisionCache.Decision decision = DecisionCache.Decision.blacklisted(remoteAddress, clients, dnsGeneration);
+                decide(evaluation, decision, policyChain, executionContext);
+            },
+            () -> {
+                final String remoteAddress = executionContext.request().remoteAddress();
+                final DecisionCache.Decision decision = DecisionCache.Decision.notWhitelisted(remoteAddress, clients, dnsGeneration);
+                decide(evaluation, decision, policyChain, executionContext);
             }
+        );
+    }
+
+    private void decide(
+        Evaluation evaluation,
+        DecisionCache.Decision decision,
+        PolicyChain policyChain,
+        ExecutionContext executionContext
+    ) {
+        if (evaluation.key() != null) {
+            decisions.put(evaluation.key(), decision);
         }
+        countDenial(decision);
+        apply(decision, evaluation.start(), policyChain, executionContext);
+    }
 
-        if (!whiteList.isEmpty()) {
-            final List<String> filteredIps = new ArrayList<>();
-            final List<String> filteredHosts = new ArrayList<>();
-            processFilteredLists(whiteList, filteredIps, filteredHosts);
+    private void countDenial(DecisionCache.Decision decision) {
+        if (!decision.allowed() && bans.denied(decision.clients())) {
+            METRICS.autoBanned();
+            LOGGER.debug("Client IPs {} denied too often, banned for {}s", decision.clients(), configuration.getAutoBanDuration());
+        }
+    }
 
-            boolean ipMatched = ips.stream().anyMatch(ip -> isFiltered(ip, filteredIps));
-            if (ipMatched) {
-                final Promise<Void> promise = Promise.promise();
-                futures.add(promise.future());
-                promise.complete();
-            } else {
-                if (filteredHosts.isEmpty()) {
-                    fail(policyChain, String.join(", ", ips));
-                    return;
-                }
-                whitelistFilteredHostsProcess(filteredHosts, futures, executionContext, ips);
+    /**
+     * @param client Where the evaluated addresses come from
+     * @param addresses The evaluated addresses, <code>null</code> for the tokens which are not IP addresses
+     * @return the addresses to count a denial against, i.e. the client IPs but the trusted proxies
+     */
+    private List<IpAddress> deniedClients(ClientIps client, List<IpAddress> addresses) {
+        if (!client.countable()) {
+            return List.of();
+        }
+        final List<IpAddress> clients = new ArrayList<>(addresses.size());
+        for (IpAddress address : addresses) {
+            if (address != null && !trustedProxies.matches(address)) {
+                clients.add(address);
             }
         }
+        return clients;
+    }
 
-        if (futures.isEmpty()) {
+    private void apply(DecisionCache.Decision decision, long start, PolicyChain policyChain, ExecutionContext executionContext) {
+        METRICS.decided(decision);
+        executionContext.setAttribute(ATTR_DECISION, decision.outcome().name());
+        executionContext.setAttribute(ATTR_EVALUATION_TIME, System.nanoTime() - start);
+        if (decision.allowed()) {
             policyChain.doNext(executionContext.request(), executionContext.response());
         } else {
-            Future.all(futures)
-                .onSuccess(__ -> policyChain.doNext(executionContext.request(), executionContext.response()))
-                .onFailure(__ -> fail(policyChain, executionContext.request().remoteAddress()));
+            fail(policyChain, decision.deniedIp());
         }
     }
 
     /**
      * @param filteredHosts A list of hosts that should be blocked
-     * @param futures
+     * @param decision The decision to notify of each host outcome, the remaining hosts are not resolved once it is settled
      * @param executionContext
-     * @param ips The IP addresses corresponding to the calling device
+     * @param addresses The IP addresses corresponding to the calling device
      */
     private void blacklistFilteredHostsProcess(
         List<String> filteredHosts,
-        List<Future<?>> futures,
+        HostFilteringDecision decision,
         ExecutionContext executionContext,
-        List<String> ips
+        List<IpAddress> addresses
     ) {
-        filteredHosts.forEach(host -> {
-            final Promise<Void> promise = Promise.promise();
-            futures.add(promise.future());
-            LazyDnsClient.lookup(executionContext, configuration.getLookupIpVersion(), host, event -> {
+        for (String host : filteredHosts) {
+            if (decision.isDecided()) {
+                return;
+            }
+            LazyDnsClient.lookupAddresses(executionContext, configuration.getLookupIpVersion(), host, event -> {
                 if (event.succeeded()) {
-                    List<String> resolvedIps = event.result();
-                    boolean matchFound = ips.stream().anyMatch(resolvedIps::contains);
-                    if (matchFound) {
-                        promise.fail("");
-                    } else {
-                        promise.complete();
-                    }
+                    decision.blacklistedHostChecked(hostMatched(executionContext, decision, host, event.result().containsAny(addresses)));
                 } else {
                     LOGGER.error("Cannot resolve host: '{}'", host, event.cause());
-                    promise.fail("Cannot resolve host: '" + host + "'");
+                    decision.blacklistedHostChecked(true);
                 }
             });
-        });
+        }
     }
 
     /**
      * @param filteredHosts A list of hosts that should be allowed
-     * @param futures
+     * @param decision The decision to notify of each host outcome, the remaining hosts are not resolved once it is settled
      * @param executionContext
-     * @param ips The IP addresses corresponding to the calling device
+     * @param addresses The IP addresses corresponding to the calling device
      */
     private void whitelistFilteredHostsProcess(
         List<String> filteredHosts,
-        List<Future<?>> futures,
+        HostFilteringDecision decision,
         ExecutionContext executionContext,
-        List<String> ips
+        List<IpAddress> addresses
     ) {
-        filteredHosts.forEach(host -> {
-            final Promise<Void> promise = Promise.promise();
-            futures.add(promise.future());
-            LazyDnsClient.lookup(executionContext, configuration.getLookupIpVersion(), host, event -> {
+        for (String host : filteredHosts) {
+            if (decision.isDecided()) {
+                return;
+            }
+            LazyDnsClient.lookupAddresses(executionContext, configuration.getLookupIpVersion(), host, event -> {
                 if (event.succeeded()) {
-                    List<String> resolvedIps = event.result();
-                    boolean matchFound = ips.stream().anyMatch(resolvedIps::contains);
-                    if (!matchFound) {
-                        promise.fail("");
-                    } else {
-                        promise.complete();
-                    }
+                    decision.whitelistedHostChecked(hostMatched(executionContext, decision, host, event.result().containsAny(addresses)));
                 } else {
                     LOGGER.error("Cannot resolve host: '{}'", host, event.cause());
-                    promise.fail("Cannot resolve host: '" + host + "'");
+                    decision.whitelistedHostChecked(false);
                 }
             });
-        });
+        }
     }
 
-    private void processFilteredLists(final Set<String> filteredList, final List<String> filteredIps, final List<String> filteredHosts) {
-        filteredList
-            .stream()
-            .filter(Objects::nonNull)
-            .forEach(filteredItem -> {
-                final int index = filteredItem.indexOf('/');
-                final String filteredItemToCheck;
-                if (index != -1) {
-                    filteredItemToCheck = filteredItem.substring(0, index);
-                } else {
-                    filteredItemToCheck = filteredItem;
+    /**
+     * Match the verified host name of each client IP against the host entries, see {@link HostMatchingMode#REVERSE}.
+     *
+     * @param blacklistedHosts The host entries that should be blocked
+     * @param whitelistedHosts The host entries that should be allowed, empty if the client IPs are already whitelisted
+     * @param whitelisted true if the client IPs are already whitelisted
+     * @param policyChain
+     * @param executionContext
+     * @param addresses The IP addresses corresponding to the calling device
+     * @param clients The IP addresses to count a denial against
+     * @param evaluation The evaluation of the request
+     */
+    private void reverseFilteredHostsProcess(
+        HostPatternSet blacklistedHosts,
+        HostPatternSet whitelistedHosts,
+        boolean whitelisted,
+        PolicyChain policyChain,
+        ExecutionContext executionContext,
+        List<IpAddress> addresses,
+        List<IpAddress> clients,
+        Evaluation evaluation
+    ) {
+        final List<IpAddress> resolved = addresses.stream().filter(Objects::nonNull).collect(toList());
+        if (resolved.isEmpty()) {
+            // No client IP to resolve, host entries cannot match
+            if (whitelisted) {
+                decide(evaluation, DecisionCache.Decision.ALLOWED, policyChain, executionContext);
+            } else {
+                final String remoteAddress = executionContext.request().remoteAddress();
+                decide(evaluation, DecisionCache.Decision.notWhitelisted(remoteAddress, clients), policyChain, executionContext);
+            }
+            return;
+        }
+
+        final boolean checkBlacklist = !blacklistedHosts.isEmpty();
+        if (!checkBlacklist && whitelisted) {
+            // The blacklisted hosts cannot match any verified host name (e.g. "."), nothing is left to check
+            decide(evaluation, DecisionCache.Decision.ALLOWED, policyChain, executionContext);
+            return;
+        }
+        final HostFilteringDecision decision = newDecision(
+            checkBlacklist ? resolved.size() : 0,
+            whitelisted ? 0 : resolved.size(),
+            whitelisted,
+            policyChain,
+            executionContext,
+            clients,
+            evaluation
+        );
+        for (IpAddress client : resolved) {
+            if (decision.isDecided()) {
+                return;
+            }
+            LazyDnsClient.reverseLookup(executionContext, client, event -> {
+                final String host = event.succeeded() ? event.result() : null;
+                if (checkBlacklist) {
+                    decision.blacklistedHostChecked(hostMatched(executionContext, decision, host, blacklistedHosts.matches(host)));
                 }
-                if (InetAddressValidator.getInstance().isValid(filteredItemToCheck)) {
-                    filteredIps.add(filteredItem);
-                } else {
-                    filteredHosts.add(filteredItem);
+                if (!whitelisted) {
+                    decision.whitelistedHostChecked(hostMatched(executionContext, decision, host, whitelistedHosts.matches(host)));
                 }
             });
+        }
+    }
+
+    /**
+     * @param key The key of the decision in the cache, <code>null</code> if it must not be cached
+     * @param start When the request started to be evaluated, in {@link System#nanoTime()}
+     */
+    private record Evaluation(DecisionCache.Key key, long start) {}
+
+    private static void matched(ExecutionContext executionContext, IpRange rule) {
+        METRICS.matched(rule);
+        executionContext.setAttribute(ATTR_SOURCE, rule.isSingleAddress() ? SOURCE_IP : SOURCE_CIDR);
+        executionContext.setAttribute(ATTR_RULE, rule.source());
+    }
+
+    /**
+     * @param rule The host entry, or the verified host name of the client, which has been checked
+     * @return whether it matched
+     */
+    private static boolean hostMatched(ExecutionContext executionContext, HostFilteringDecision decision, String rule, boolean matched) {
+        if (matched) {
+            METRICS.hostMatched();
+            if (!decision.isDecided()) {
+                // The match about to settle the decision, or to be overridden by a blacklisted host settling it
+                executionContext.setAttribute(ATTR_SOURCE, SOURCE_HOST);
+                executionContext.setAttribute(ATTR_RULE, rule);
+            }
+        }
+        return matched;
     }
 
     private void fail(PolicyChain policyChain, String remoteAddress) {
@@ -208,26 +449,74 @@ public class IPFilteringPolicy {
     }
 
     public List<String> extractIps(ExecutionContext context) {
-        List<String> ips;
-        Request request = context.request();
+        return IpAddressTokenizer.split(clientIps(context).value());
+    }
+
+    /**
+     * @return the IP address of the client, or the comma-separated list of the IP addresses of the client and its proxies
+     */
+    private ClientIps clientIps(ExecutionContext context) {
+        final Request request = context.request();
 
         //use Custom IP Address from an EL or static value
         if (configuration.isUseCustomIPAddress()) {
-            String customIPAddress = context.getTemplateEngine().getValue(configuration.getCustomIPAddress(), String.class);
-            ips = Arrays.stream(customIPAddress.split(",")).map(String::trim).collect(Collectors.toList());
-        } else if (configuration.isMatchAllFromXForwardedFor()) {
+            return new ClientIps(context.getTemplateEngine().getValue(configuration.getCustomIPAddress(), String.class), true);
+        }
+        if (configuration.isMatchAllFromXForwardedFor()) {
             //use X-Forwarded-For header value directly (for compatibility)
-            ips = Arrays.stream(request.headers().get(HttpHeaderNames.X_FORWARDED_FOR).split(",")).map(String::trim).collect(toList());
-        } else {
-            //default way to get IP Address
-            ips = singletonList(request.remoteAddress());
+            return new ClientIps(request.headers().get(HttpHeaderNames.X_FORWARDED_FOR), true);
         }
-        return ips;
+        final ClientIpSource source = configuration.getClientIpSource();
+        if (source == ClientIpSource.X_FORWARDED_FOR || source == ClientIpSource.FORWARDED) {
+            return forwardedClientIp(request, source);
+        }
+        //default way to get IP Address, which is the PROXY protocol source address when the gateway accepts it
+        return new ClientIps(request.remoteAddress(), true);
     }
 
-    public boolean isFiltered(String ip, List<String> filteredList) {
-        LOGGER.debug("Filtering IP {} against filter list {}", ip, filteredList);
+    /**
+     * @return the client IP, i.e. the rightmost address of the forwarded addresses followed by the remote address which is neither a
+     * trusted hop nor a trusted proxy
+     */
+    private ClientIps forwardedClientIp(Request request, ClientIpSource source) {
+        final String remoteAddress = request.remoteAddress();
+        final int trustedHops = configuration.getTrustedHops();
+        if (trustedHops <= 0 && !trustedProxies.matches(IpAddress.parse(remoteAddress))) {
+            // The request does not come from a trusted proxy, its forwarding header cannot be trusted
+            return new ClientIps(remoteAddress, true);
+        }
+        final String name = source == ClientIpSource.FORWARDED ? ForwardedHeader.NAME : HttpHeaderNames.X_FORWARDED_FOR;
+        final String forwarded = header(request, name);
+        if (forwarded == null || forwarded.isBlank()) {
+            // The remote address is a trusted hop, which must not be banned for the requests of its clients
+            return new ClientIps(remoteAddress, false);
+        }
+        final int skip = Math.max(0, trustedHops - 1);
+        if (source == ClientIpSource.FORWARDED) {
+            return new ClientIps(ForwardedHeader.clientIp(forwarded, skip, trustedProxies), true);
+        }
+        final int clientIp = IpAddressTokenizer.lastIndexOfUntrusted(forwarded, skip, trustedProxies);
+        return new ClientIps(IpAddressTokenizer.tokenAt(forwarded, clientIp), true);
+    }
+
+    /**
+     * @param value The client IP, or the comma-separated list of the IPs of the client and its proxies, may be <code>null</code>
+     * @param countable false if the value is the address of a trusted hop, which denials must not be counted against
+     */
+    private record ClientIps(CharSequence value, boolean countable) {}
+
+    /**
+     * @return the value of the header, the values of a repeated header being joined as a single comma-separated list
+     */
+    private static String header(Request request, String name) {
+        final List<String> values = request.headers().getAll(name);
+        if (values == null || values.isEmpty()) {
+            return null;
+        }
+        return values.size() == 1 ? values.get(0) : String.join(",", values);
+    }
 
+    public boolean isFiltered(String ip, List<String> filteredList) {
         if (CollectionUtils.isEmpty(filteredList)) {
             return false;
         }
@@ -236,46 +525,24 @@ public class IPFilteringPolicy {
             return false;
         }
 
-        return filteredList
-            .stream()
-            .filter(Objects::nonNull)
-            .anyMatch(filterIp -> {
-                if (filterIp.equals(ip)) {
-                    return true;
-                }
-                return isIpInFilterIpRange(ip, filterIp);
-            });
-    }
-
-    boolean isIpInFilterIpRange(String ip, String filterIp) {
-        try {
-            if (isIPv4(ip)) {
-                SubnetUtils utils = new SubnetUtils(filterIp);
-                utils.setInclusiveHostCount(configuration.getIsInclusiveHostCount());
-                return utils.getInfo().isInRange(ip);
-            } else {
-                IpSubnetFilterRule rule = new IpSubnetFilterRule(filterIp, IpFilterRuleType.ACCEPT);
-                return rule.matches(new InetSocketAddress(ip, 0));
-            }
-        } catch (IllegalArgumentException | UnknownHostException iae) {
-            return false;
+        final IpFilterList compiled = IpFilterList.compile(
+            filteredList.stream().filter(Objects::nonNull).collect(toList()),
+            configuration.getIsInclusiveHostCount(),
+            configuration.getMatchStrategy()
+        );
+        final IpAddress address = IpAddress.parse(ip);
+        final long matchStart = System.nanoTime();
+        final IpRange rule = address != null ? compiled.ipMatcher().match(address) : null;
+        METRICS.matchTime(System.nanoTime() - matchStart);
+        if (rule != null) {
+            METRICS.matched(rule);
         }
+        return rule != null;
     }
 
-    private static boolean isIPv4(String ip) throws UnknownHostException {
-        return InetAddress.getByName(ip) instanceof java.net.Inet4Address;
-    }
-
-    @SuppressWarnings({ "removal" })
-    private static Set<String> computeList(ExecutionContext ctx, List<String> givenList) {
-        if (givenList == null) {
-            return Set.of();
-        }
-        return givenList
-            .stream()
-            .map(given -> ctx.getTemplateEngine().getValue(given, String.class))
-            .map(k -> k != null && !k.isEmpty() ? k.split(",") : new String[] {})
-            .flatMap(Arrays::stream)
-            .collect(Collectors.toSet());
+    boolean isIpInFilterIpRange(String ip, String filterIp) {
+        final IpAddress address = IpAddress.parse(ip);
+        final IpRange range = IpRange.parse(filterIp, configuration.getIsInclusiveHostCount());
+        return address != null && range != null && range.contains(address);
     }
 }
@@ -37,6 +37,18 @@ public class IPFilteringPolicyConfiguration implements PolicyConfiguration {
      */
     private List<String> blacklistIps;
 
+    /**
+     * The path of a file listing more IPs that are allowed to call the api, one entry or a comma-separated list of entries per line,
+     * relative to the directory configured on the gateway.
+     */
+    private String whitelistFile;
+
+    /**
+     * The path of a file listing more IPs that are not allowed to call the api, one entry or a comma-separated list of entries per line,
+     * relative to the directory configured on the gateway.
+     */
+    private String blacklistFile;
+
     /**
      * The IP Version supported to make the lookup
      */
@@ -44,6 +56,66 @@ public class IPFilteringPolicyConfiguration implements PolicyConfiguration {
 
     private boolean isInclusiveHostCount = false;
 
+    /**
+     * The data structure used to match the IP and CIDR entries of the lists
+     */
+    private IpMatchStrategy matchStrategy;
+
+    /**
+     * How the host entries of the lists are matched against the client IP
+     */
+    private HostMatchingMode hostMatchingMode;
+
+    /**
+     * Where the client IP is read from
+     */
+    private ClientIpSource clientIpSource;
+
+    /**
+     * The IPs of the proxies trusted to report the client IP in the X-Forwarded-For header
+     */
+    private List<String> trustedProxies;
+
+    /**
+     * The number of proxies in front of the gateway whose X-Forwarded-For addresses are trusted whatever their IP
+     */
+    private int trustedHops;
+
+    /**
+     * The maximum number of decisions cached per client IP, 0 to disable the cache
+     */
+    private int decisionCacheMaxEntries;
+
+    /**
+     * How long, in seconds, a cached decision is reused
+     */
+    private long decisionCacheTtl = 60;
+
+    /**
+     * The number of denials within the window which temporarily bans a client IP, 0 to never ban client IPs
+     */
+    private int autoBanThreshold;
+
+    /**
+     * The length, in seconds, of the window denials are counted over
+     */
+    private long autoBanWindow = 60;
+
+    /**
+     * How long, in seconds, a client IP is banned
+     */
+    private long autoBanDuration = 600;
+
+    /**
+     * The maximum number of client IPs whose denials are counted, and of banned client IPs
+     */
+    private int autoBanMaxEntries = 10000;
+
+    /**
+     * Whether the bans are shared through the ban store configured on the gateway, with the other policies sharing theirs
+     */
+    private boolean autoBanShared;
+
     private boolean useCustomIPAddress;
 
     private String customIPAddress;
@@ -72,6 +144,22 @@ public class IPFilteringPolicyConfiguration implements PolicyConfiguration {
         this.blacklistIps = blacklistIps == null ? List.of() : blacklistIps.stream().map(String::trim).collect(Collectors.toList());
     }
 
+    public String getWhitelistFile() {
+        return whitelistFile;
+    }
+
+    public void setWhitelistFile(String whitelistFile) {
+        this.whitelistFile = whitelistFile;
+    }
+
+    public String getBlacklistFile() {
+        return blacklistFile;
+    }
+
+    public void setBlacklistFile(String blacklistFile) {
+        this.blacklistFile = blacklistFile;
+    }
+
     public LookupIpVersion getLookupIpVersion() {
         return lookupIpVersion == null ? LookupIpVersion.ALL : lookupIpVersion;
     }
@@ -88,6 +176,102 @@ public class IPFilteringPolicyConfiguration implements PolicyConfiguration {
         return isInclusiveHostCount;
     }
 
+    public IpMatchStrategy getMatchStrategy() {
+        return matchStrategy == null ? IpMatchStrategy.TRIE : matchStrategy;
+    }
+
+    public void setMatchStrategy(IpMatchStrategy matchStrategy) {
+        this.matchStrategy = matchStrategy;
+    }
+
+    public HostMatchingMode getHostMatchingMode() {
+        return hostMatchingMode == null ? HostMatchingMode.FORWARD : hostMatchingMode;
+    }
+
+    public void setHostMatchingMode(HostMatchingMode hostMatchingMode) {
+        this.hostMatchingMode = hostMatchingMode;
+    }
+
+    public ClientIpSource getClientIpSource() {
+        return clientIpSource == null ? ClientIpSource.REMOTE_ADDRESS : clientIpSource;
+    }
+
+    public void setClientIpSource(ClientIpSource clientIpSource) {
+        this.clientIpSource = clientIpSource;
+    }
+
+    public List<String> getTrustedProxies() {
+        return trustedProxies;
+    }
+
+    public void setTrustedProxies(List<String> trustedProxies) {
+        this.trustedProxies = trustedProxies == null ? List.of() : trustedProxies.stream().map(String::trim).collect(Collectors.toList());
+    }
+
+    public int getTrustedHops() {
+        return trustedHops;
+    }
+
+    public void setTrustedHops(int trustedHops) {
+        this.trustedHops = trustedHops;
+    }
+
+    public int getDecisionCacheMaxEntries() {
+        return decisionCacheMaxEntries;
+    }
+
+    public void setDecisionCacheMaxEntries(int decisionCacheMaxEntries) {
+        this.decisionCacheMaxEntries = decisionCacheMaxEntries;
+    }
+
+    public long getDecisionCacheTtl() {
+        return decisionCacheTtl;
+    }
+
+    public void setDecisionCacheTtl(long decisionCacheTtl) {
+        this.decisionCacheTtl = decisionCacheTtl;
+    }
+
+    public int getAutoBanThreshold() {
+        return autoBanThreshold;
+    }
+
+    public void setAutoBanThreshold(int autoBanThreshold) {
+        this.autoBanThreshold = autoBanThreshold;
+    }
+
+    public long getAutoBanWindow() {
+        return autoBanWindow;
+    }
+
+    public void setAutoBanWindow(long autoBanWindow) {
+        this.autoBanWindow = autoBanWindow;
+    }
+
+    public long getAutoBanDuration() {
+        return autoBanDuration;
+    }
+
+    public void setAutoBanDuration(long autoBanDuration) {
+        this.autoBanDuration = autoBanDuration;
+    }
+
+    public int getAutoBanMaxEntries() {
+        return autoBanMaxEntries;
+    }
+
+    public void setAutoBanMaxEntries(int autoBanMaxEntries) {
+        this.autoBanMaxEntries = autoBanMaxEntries;
+    }
+
+    public boolean isAutoBanShared() {
+        return autoBanShared;
+    }
+
+    public void setAutoBanShared(boolean autoBanShared) {
+        this.autoBanShared = autoBanShared;
+    }
+
     public String getCustomIPAddress() {
         return customIPAddress;
     }
@@ -0,0 +1,50 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.ipfiltering;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * InMemoryBanStore is a {@link BanStore} held in memory, to share bans between the policy instances of a single gateway or in tests.
+ * Only the latest entry of each client IP is kept, so that its size is bounded by the number of client IPs ever banned.
+ */
+public final class InMemoryBanStore implements BanStore {
+
+    private final TreeMap<Long, BanEntry> entries = new TreeMap<>();
+    private final Map<String, Long> versions = new HashMap<>();
+    private long version;
+
+    @Override
+    public synchronized void ban(Collection<BanEntry> batch) {
+        for (BanEntry entry : batch) {
+            version++;
+            final Long superseded = versions.put(entry.ip(), version);
+            if (superseded != null) {
+                entries.remove(superseded);
+            }
+            entries.put(version, entry);
+        }
+    }
+
+    @Override
+    public synchronized BanDelta changesSince(long since) {
+        return new BanDelta(version, new ArrayList<>(entries.tailMap(since, false).values()));
+    }
+}
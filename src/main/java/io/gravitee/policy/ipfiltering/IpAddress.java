@@ -0,0 +1,284 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.ipfiltering;
+
+/**
+ * IpAddress is the numeric form of an IPv4 or IPv6 address. An IPv4 address is held in the 32 lower bits of {@link #low()},
+ * an IPv6 address is split in its 64 higher bits ({@link #high()}) and its 64 lower bits ({@link #low()}).
+ * <p>
+ * Literals are parsed by hand: no resolver is involved, no intermediate object is created and invalid values are reported by a
+ * <code>null</code> (or <code>-1</code>) result rather than by an exception.
+ * <p>
+ * IPv4-mapped IPv6 addresses (<code>::ffff:10.0.0.1</code>) are parsed as the IPv4 address they map, as dual-stack sockets report
+ * IPv4 clients that way, so that they match the IPv4 entries of the lists.
+ */
+public final class IpAddress {
+
+    static final long INVALID = -1;
+
+    private static final long IPV4_MAPPED_PREFIX = 0xFFFFL << 32;
+
+    private final boolean ipv6;
+    private final long high;
+    private final long low;
+
+    private IpAddress(boolean ipv6, long high, long low) {
+        this.ipv6 = ipv6;
+        this.high = high;
+        this.low = low;
+    }
+
+    public static IpAddress ipv4(long value) {
+        return new IpAddress(false, 0, value & 0xFFFFFFFFL);
+    }
+
+    public static IpAddress ipv6(long high, long low) {
+        return new IpAddress(true, high, low);
+    }
+
+    /**
+     * @param ip An IPv4 or IPv6 address literal
+     * @return the parsed address or <code>null</code> if the given value is not an IP address literal
+     */
+    public static IpAddress parse(CharSequence ip) {
+        return ip == null ? null : parse(ip, 0, ip.length());
+    }
+
+    /**
+     * @param value A sequence containing an IPv4 or IPv6 address literal
+     * @param from The index of the first character of the literal
+     * @param to The index following the last character of the literal
+     * @return the parsed address or <code>null</code> if the given range is not an IP address literal
+     */
+    public static IpAddress parse(CharSequence value, int from, int to) {
+        for (int i = from; i < to; i++) {
+            final char c = value.charAt(i);
+            if (c == ':') {
+                final IpAddress address = parseIpv6(value, from, to);
+                return address != null && address.high == 0 && (address.low & ~0xFFFFFFFFL) == IPV4_MAPPED_PREFIX
+                    ? ipv4(address.low)
+                    : address;
+            }
+            if (c == '.') {
+                final long ipv4 = parseIpv4(value, from, to);
+                return ipv4 == INVALID ? null : ipv4(ipv4);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the IPv4 address as an unsigned int value, or {@link #INVALID} if the given range is not an IPv4 literal
+     */
+    static long parseIpv4(CharSequence value, int from, int to) {
+        long result = 0;
+        int octets = 0;
+        int octet = 0;
+        int digits = 0;
+        for (int i = from; i <= to; i++) {
+            final char c = i == to ? '.' : value.charAt(i);
+            if (c == '.') {
+                if (digits == 0 || octets == 4) {
+                    return INVALID;
+                }
+                result = (result << 8) | octet;
+                octets++;
+                octet = 0;
+                digits = 0;
+            } else if (c >= '0' && c <= '9') {
+                // Leading zeros are rejected as some resolvers read such octets as octal values
+                if ((digits == 1 && octet == 0) || digits == 3) {
+                    return INVALID;
+                }
+                octet = octet * 10 + (c - '0');
+                if (octet > 255) {
+                    return INVALID;
+                }
+                digits++;
+            } else {
+                return INVALID;
+            }
+        }
+        return octets == 4 ? result : INVALID;
+    }
+
+    private static IpAddress parseIpv6(CharSequence value, int from, int to) {
+        // Ignore the zone index (ex: fe80::1%eth0)
+        for (int i = from; i < to; i++) {
+            if (value.charAt(i) == '%') {
+                to = i;
+                break;
+            }
+        }
+        if (to - from < 2) {
+            return null;
+        }
+        // Groups before a '::' are accumulated in (headHigh, headLow), groups after it in (tailHigh, tailLow)
+        long headHigh = 0;
+        long headLow = 0;
+        long tailHigh = 0;
+        long tailLow = 0;
+        int headGroups = 0;
+        int tailGroups = 0;
+        boolean compressed = false;
+
+        int i = from;
+        if (value.charAt(i) == ':') {
+            if (value.charAt(i + 1) != ':') {
+                return null;
+            }
+            compressed = true;
+            i += 2;
+        }
+        while (i < to) {
+            int groupEnd = i;
+            int group = 0;
+            while (groupEnd < to && groupEnd - i < 5) {
+                final int digit = hexDigit(value.charAt(groupEnd));
+                if (digit == -1) {
+                    break;
+                }
+                group = (group << 4) | digit;
+                groupEnd++;
+            }
+            final int digits = groupEnd - i;
+            if (digits == 0 || digits > 4) {
+                return null;
+            }
+            final int groups = compressed ? tailGroups : headGroups;
+            final long bits;
+            final int bitCount;
+            if (groupEnd < to && value.charAt(groupEnd) == '.') {
+                // Embedded IPv4 address, only allowed as the last 32 bits
+                final long ipv4 = parseIpv4(value, i, to);
+                if (ipv4 == INVALID) {
+                    return null;
+                }
+                bits = ipv4;
+                bitCount = 32;
+                groupEnd = to;
+            } else {
+                bits = group;
+                bitCount = 16;
+            }
+            if (groups + bitCount / 16 > (compressed ? 7 - headGroups : 8)) {
+                return null;
+            }
+            if (compressed) {
+                tailHigh = (tailHigh << bitCount) | (tailLow >>> (64 - bitCount));
+                tailLow = (tailLow << bitCount) | bits;
+                tailGroups += bitCount / 16;
+            } else {
+                headHigh = (headHigh << bitCount) | (headLow >>> (64 - bitCount));
+                headLow = (headLow << bitCount) | bits;
+                headGroups += bitCount / 16;
+            }
+            i = groupEnd;
+            if (i == to) {
+                break;
+            }
+            if (value.charAt(i) != ':' || ++i == to) {
+                return null;
+            }
+            if (value.charAt(i) == ':') {
+                if (compressed) {
+                    return null;
+                }
+                compressed = true;
+                i++;
+            }
+        }
+        if (!compressed) {
+            return headGroups == 8 ? ipv6(headHigh, headLow) : null;
+        }
+        if (headGroups + tailGroups > 7) {
+            // A '::' stands for at least one group of zeros
+            return null;
+        }
+        // Move the head groups to the higher bits, the tail groups stay in the lower bits
+        final int shift = 16 * (8 - headGroups);
+        final long high;
+        final long low;
+        if (shift >= 128) {
+            high = 0;
+            low = 0;
+        } else if (shift >= 64) {
+            high = headLow << (shift - 64);
+            low = 0;
+        } else {
+            high = (headHigh << shift) | (shift == 0 ? 0 : headLow >>> (64 - shift));
+            low = headLow << shift;
+        }
+        return ipv6(high | tailHigh, low | tailLow);
+    }
+
+    private static int hexDigit(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+
+    public boolean isIpv6() {
+        return ipv6;
+    }
+
+    public long high() {
+        return high;
+    }
+
+    public long low() {
+        return low;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof IpAddress other)) {
+            return false;
+        }
+        return ipv6 == other.ipv6 && high == other.high && low == other.low;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(high * 31 + low) ^ (ipv6 ? 1 : 0);
+    }
+
+    @Override
+    public String toString() {
+        if (!ipv6) {
+            return (low >>> 24) + "." + ((low >>> 16) & 0xFF) + "." + ((low >>> 8) & 0xFF) + "." + (low & 0xFF);
+        }
+        final StringBuilder builder = new StringBuilder(39);
+        for (int i = 0; i < 8; i++) {
+            if (i > 0) {
+                builder.append(':');
+            }
+            final long word = i < 4 ? high : low;
+            builder.append(Long.toHexString((word >>> (48 - 16 * (i % 4))) & 0xFFFF));
+        }
+        return builder.toString();
+    }
+}
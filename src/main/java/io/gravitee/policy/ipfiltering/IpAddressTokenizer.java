@@ -0,0 +1,197 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.ipfiltering;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * IpAddressTokenizer walks a comma-separated list of IP addresses, such as an X-Forwarded-For header, in place: each address is
+ * trimmed and parsed straight from the characters of the value, without splitting it into strings.
+ * <p>
+ * A <code>null</code> value is handled as a single <code>null</code> token, which is not an IP address.
+ */
+public final class IpAddressTokenizer {
+
+    private IpAddressTokenizer() {}
+
+    /**
+     * @param value The comma-separated list of IP addresses, may be <code>null</code>
+     * @param predicate The predicate to test each address with, in order, the tokens which are not IP addresses are skipped
+     * @return the index of the first character of the first address accepted by the given predicate, or <code>-1</code> if there is none
+     */
+    public static int indexOf(CharSequence value, Predicate<IpAddress> predicate) {
+        if (value == null) {
+            return -1;
+        }
+        final int length = value.length();
+        int from = 0;
+        while (from <= length) {
+            final int separator = indexOfSeparator(value, from);
+            final int start = trimStart(value, from, separator);
+            final IpAddress address = IpAddress.parse(value, start, trimEnd(value, start, separator));
+            if (address != null && predicate.test(address)) {
+                return start;
+            }
+            from = separator + 1;
+        }
+        return -1;
+    }
+
+    /**
+     * @param value The comma-separated list of IP addresses, may be <code>null</code>
+     * @param matcher The matcher to look the addresses up in, in order
+     * @return the first address matching the given matcher, with its rule, the remaining addresses are not parsed, or <code>null</code>
+     * if there is no match
+     */
+    public static Match firstMatch(CharSequence value, IpMatcher matcher) {
+        if (value == null || matcher == IpMatcher.NONE) {
+            return null;
+        }
+        final int length = value.length();
+        int from = 0;
+        while (from <= length) {
+            final int separator = indexOfSeparator(value, from);
+            final int start = trimStart(value, from, separator);
+            final IpAddress address = IpAddress.parse(value, start, trimEnd(value, start, separator));
+            final IpRange rule = address != null ? matcher.match(address) : null;
+            if (rule != null) {
+                return new Match(start, rule);
+            }
+            from = separator + 1;
+        }
+        return null;
+    }
+
+    /**
+     * @param index The index of the first character of the matching address, see {@link #tokenAt(CharSequence, int)}
+     * @param rule The rule matching the address
+     */
+    public record Match(int index, IpRange rule) {}
+
+    /**
+     * Walk the given addresses right to left, as a chain of proxies.
+     *
+     * @param value The comma-separated list of IP addresses
+     * @param skip The number of addresses to skip whatever they are
+     * @param trusted The addresses to skip once the first <code>skip</code> addresses are skipped
+     * @return the index of the first character of the rightmost address which is not skipped, or of the leftmost address if they are
+     * all skipped
+     */
+    public static int lastIndexOfUntrusted(CharSequence value, int skip, IpMatcher trusted) {
+        int to = value.length();
+        while (true) {
+            final int separator = lastIndexOfSeparator(value, to);
+            final int start = trimStart(value, separator + 1, to);
+            if (separator == -1) {
+                return start;
+            }
+            if (skip > 0) {
+                skip--;
+            } else if (!trusted.matches(IpAddress.parse(value, start, trimEnd(value, start, to)))) {
+                return start;
+            }
+            to = separator;
+        }
+    }
+
+    /**
+     * @param value The comma-separated list of IP addresses
+     * @param index The index of the first character of an address, as returned by {@link Match#index()},
+     * {@link #indexOf(CharSequence, Predicate)} or {@link #lastIndexOfUntrusted(CharSequence, int, IpMatcher)}
+     * @return the trimmed address starting at the given index
+     */
+    public static String tokenAt(CharSequence value, int index) {
+        return value.subSequence(index, trimEnd(value, index, indexOfSeparator(value, index))).toString();
+    }
+
+    /**
+     * @param value The comma-separated list of IP addresses, may be <code>null</code>
+     * @return the parsed addresses, <code>null</code> for each token which is not an IP address
+     */
+    public static List<IpAddress> parse(CharSequence value) {
+        final List<IpAddress> addresses = new ArrayList<>();
+        if (value == null) {
+            addresses.add(null);
+            return addresses;
+        }
+        final int length = value.length();
+        int from = 0;
+        while (from <= length) {
+            final int separator = indexOfSeparator(value, from);
+            final int start = trimStart(value, from, separator);
+            addresses.add(IpAddress.parse(value, start, trimEnd(value, start, separator)));
+            from = separator + 1;
+        }
+        return addresses;
+    }
+
+    /**
+     * @param value The comma-separated list of IP addresses, may be <code>null</code>
+     * @return the trimmed tokens
+     */
+    public static List<String> split(CharSequence value) {
+        final List<String> tokens = new ArrayList<>();
+        if (value == null) {
+            tokens.add(null);
+            return tokens;
+        }
+        final int length = value.length();
+        int from = 0;
+        while (from <= length) {
+            final int separator = indexOfSeparator(value, from);
+            final int start = trimStart(value, from, separator);
+            tokens.add(value.subSequence(start, trimEnd(value, start, separator)).toString());
+            from = separator + 1;
+        }
+        return tokens;
+    }
+
+    private static int indexOfSeparator(CharSequence value, int from) {
+        final int length = value.length();
+        for (int i = from; i < length; i++) {
+            if (value.charAt(i) == ',') {
+                return i;
+            }
+        }
+        return length;
+    }
+
+    private static int lastIndexOfSeparator(CharSequence value, int to) {
+        for (int i = to - 1; i >= 0; i--) {
+            if (value.charAt(i) == ',') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Same characters as String#trim
+    static int trimStart(CharSequence value, int from, int to) {
+        while (from < to && value.charAt(from) <= ' ') {
+            from++;
+        }
+        return from;
+    }
+
+    static int trimEnd(CharSequence value, int from, int to) {
+        while (to > from && value.charAt(to - 1) <= ' ') {
+            to--;
+        }
+        return to;
+    }
+}
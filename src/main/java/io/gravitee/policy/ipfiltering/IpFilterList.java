@@ -0,0 +1,121 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.ipfiltering;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * IpFilterList is the compiled form of a whitelist or a blacklist: the IP and CIDR entries are compiled into an {@link IpMatcher}
+ * while host names are kept aside to be resolved when a request is processed.
+ */
+public final class IpFilterList {
+
+    public static final IpFilterList EMPTY = new IpFilterList(IpMatcher.NONE, List.of(), true);
+
+    /**
+     * A list that is configured but matches no IP: unlike {@link #EMPTY}, it denies all the requests when used as a whitelist.
+     */
+    public static final IpFilterList MATCHING_NOTHING = new IpFilterList(IpMatcher.NONE, List.of(), false);
+
+    private final IpMatcher ipMatcher;
+    private final List<String> hosts;
+    private final HostPatternSet hostPatterns;
+    private final boolean empty;
+
+    private IpFilterList(IpMatcher ipMatcher, List<String> hosts, boolean empty) {
+        this.ipMatcher = ipMatcher;
+        this.hosts = hosts;
+        this.hostPatterns = HostPatternSet.compile(hosts);
+        this.empty = empty;
+    }
+
+    /**
+     * @param entries IP addresses (with or without CIDR notation) and host names
+     * @param inclusiveHostCount true if the network and broadcast addresses of an IPv4 CIDR must be matched
+     * @param strategy The data structure used to match IP and CIDR entries
+     * @return the compiled list
+     */
+    public static IpFilterList compile(Collection<String> entries, boolean inclusiveHostCount, IpMatchStrategy strategy) {
+        if (entries.isEmpty()) {
+            return EMPTY;
+        }
+        final List<IpRange> ranges = new ArrayList<>();
+        final List<String> hosts = new ArrayList<>();
+        entries.forEach(entry -> {
+            final int index = entry.indexOf('/');
+            if (IpAddress.parse(entry, 0, index != -1 ? index : entry.length()) != null) {
+                final IpRange range = IpRange.parse(entry, inclusiveHostCount);
+                if (range != null) {
+                    ranges.add(range);
+                }
+            } else {
+                hosts.add(entry);
+            }
+        });
+        final IpMatcher ipMatcher = strategy == IpMatchStrategy.RANGE_TABLE ? IpRangeTable.compile(ranges) : IpPrefixTrie.compile(ranges);
+        return new IpFilterList(ipMatcher, List.copyOf(hosts), false);
+    }
+
+    /**
+     * @return a list of IP and CIDR entries already compiled into the given matcher
+     */
+    public static IpFilterList of(IpMatcher ipMatcher) {
+        return new IpFilterList(ipMatcher, List.of(), false);
+    }
+
+    /**
+     * @return a list matching the entries of this list and the entries of the given one
+     */
+    public IpFilterList union(IpFilterList other) {
+        if (other.empty) {
+            return this;
+        }
+        if (empty) {
+            return other;
+        }
+        final List<String> allHosts;
+        if (other.hosts.isEmpty()) {
+            allHosts = hosts;
+        } else if (hosts.isEmpty()) {
+            allHosts = other.hosts;
+        } else {
+            allHosts = new ArrayList<>(hosts);
+            allHosts.addAll(other.hosts);
+        }
+        return new IpFilterList(IpMatcher.union(ipMatcher, other.ipMatcher), allHosts, false);
+    }
+
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    public IpMatcher ipMatcher() {
+        return ipMatcher;
+    }
+
+    public List<String> hosts() {
+        return hosts;
+    }
+
+    /**
+     * @return the host entries indexed to match a host name, see {@link HostMatchingMode#REVERSE}
+     */
+    public HostPatternSet hostPatterns() {
+        return hostPatterns;
+    }
+}
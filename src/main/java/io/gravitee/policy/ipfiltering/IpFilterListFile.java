@@ -0,0 +1,228 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.ipfiltering;
+
+import io.gravitee.gateway.api.ExecutionContext;
+import io.gravitee.node.api.configuration.Configuration;
+import io.gravitee.node.logging.NodeLoggerFactory;
+import io.vertx.core.Vertx;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.slf4j.Logger;
+
+/**
+ * IpFilterListFile is a whitelist or a blacklist read from a local file, one entry or a comma-separated list of entries (IPs, CIDRs or
+ * hosts) per line, <code>#</code> starting a comment, or a binary range file mapped in memory (see {@link MappedIpRangeTable}). The file
+ * is shared by all the policy instances of the gateway referring to it.
+ * <p>
+ * Files are read from the directory configured on the gateway, as policies must not make the gateway read arbitrary files (nor resolve
+ * their lines as hosts): the configured path is resolved against this directory, and ignored if it is outside of it. File lists are
+ * disabled if no directory is configured.
+ * <p>
+ * The file is loaded when it is first used by a request. Once a request has been processed, it is checked for changes on a Vert.x periodic
+ * timer and reloaded in a worker thread: the compiled list is swapped atomically so that requests are never paused. If the file
+ * cannot be read, the previous list is kept; if it cannot be read at all, the list matches nothing. The timers are cancelled, and the
+ * files forgotten, when the plugin is deactivated (see {@link IpFilteringPolicyContext}).
+ */
+public final class IpFilterListFile {
+
+    private static final Logger LOGGER = NodeLoggerFactory.getLogger(IpFilterListFile.class);
+
+    private static final String DIRECTORY = "policy.ip-filtering.file.directory";
+    private static final String RELOAD_INTERVAL = "policy.ip-filtering.file.reload-interval";
+    private static final long DEFAULT_RELOAD_INTERVAL = 30;
+
+    private static final Map<Key, IpFilterListFile> FILES = new ConcurrentHashMap<>();
+
+    /**
+     * The list of a file which cannot be used, which matches nothing
+     */
+    static final IpFilterListFile UNAVAILABLE = new IpFilterListFile(null, false, IpMatchStrategy.TRIE);
+
+    private final Path path;
+    private final boolean inclusiveHostCount;
+    private final IpMatchStrategy strategy;
+    private final AtomicReference<IpFilterList> list = new AtomicReference<>(IpFilterList.MATCHING_NOTHING);
+    private final AtomicBoolean watching = new AtomicBoolean();
+    private volatile boolean loaded;
+    private volatile Version version;
+    private volatile Vertx vertx;
+    private volatile long timerId;
+
+    private IpFilterListFile(Path path, boolean inclusiveHostCount, IpMatchStrategy strategy) {
+        this.path = path;
+        this.inclusiveHostCount = inclusiveHostCount;
+        this.strategy = strategy;
+    }
+
+    /**
+     * @param file The path of the file, relative to the directory configured on the gateway
+     * @return the list read from the given file, loaded once and shared by all the policy instances of the gateway, or
+     * {@link #UNAVAILABLE} if the file is not within the directory configured on the gateway
+     */
+    public static IpFilterListFile of(ExecutionContext ctx, String file, boolean inclusiveHostCount, IpMatchStrategy strategy) {
+        final Configuration configuration = ctx != null ? ctx.getComponent(Configuration.class) : null;
+        final Path path = resolve(configuration != null ? configuration.getProperty(DIRECTORY, String.class) : null, file);
+        if (path == null) {
+            return UNAVAILABLE;
+        }
+        final IpFilterListFile listFile = FILES.computeIfAbsent(
+            new Key(path, inclusiveHostCount, strategy),
+            k -> new IpFilterListFile(k.path, k.inclusiveHostCount, k.strategy)
+        );
+        listFile.load();
+        return listFile;
+    }
+
+    /**
+     * @param directory The directory configured on the gateway, may be <code>null</code>
+     * @param file The configured path of the file
+     * @return the path of the file within the given directory, or <code>null</code> if it is not within it
+     */
+    static Path resolve(String directory, String file) {
+        if (directory == null || directory.isBlank()) {
+            LOGGER.error("No directory configured on the gateway ({}) to read IP filtering lists from, ignoring {}", DIRECTORY, file);
+            return null;
+        }
+        try {
+            final Path base = Path.of(directory.trim()).toAbsolutePath().normalize();
+            final Path path = base.resolve(file.trim()).normalize();
+            if (path.startsWith(base) && !path.equals(base)) {
+                return path;
+            }
+            LOGGER.error("IP filtering list file {} is not within {}, ignoring it", file, base);
+        } catch (InvalidPathException e) {
+            LOGGER.error("Invalid IP filtering list file {}, ignoring it", file, e);
+        }
+        return null;
+    }
+
+    /**
+     * Load the file, once for all the policy instances referring to it, the first requests waiting for it to be loaded.
+     */
+    private void load() {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (!loaded) {
+                reload();
+                loaded = true;
+            }
+        }
+    }
+
+    /**
+     * @return the list as last loaded
+     */
+    public IpFilterList get() {
+        return list.get();
+    }
+
+    /**
+     * Start checking the file for changes, once for all the policy instances referring to it.
+     */
+    public void watch(ExecutionContext ctx) {
+        if (path == null || watching.get()) {
+            return;
+        }
+        final Vertx vertx = ctx.getComponent(Vertx.class);
+        if (vertx == null || !watching.compareAndSet(false, true)) {
+            return;
+        }
+        final Configuration configuration = ctx.getComponent(Configuration.class);
+        final Long interval = configuration != null ? configuration.getProperty(RELOAD_INTERVAL, Long.class) : null;
+        final long intervalMillis = TimeUnit.SECONDS.toMillis(interval != null && interval > 0 ? interval : DEFAULT_RELOAD_INTERVAL);
+        timerId = vertx.setPeriodic(intervalMillis, id -> vertx.executeBlocking(this::reload, false));
+        this.vertx = vertx;
+    }
+
+    /**
+     * Stop checking the files for changes, and forget them, so that the lists are garbage collected once the plugin is deactivated.
+     */
+    static void closeAll() {
+        FILES.values().removeIf(file -> {
+            file.close();
+            return true;
+        });
+    }
+
+    private void close() {
+        final Vertx timerVertx = vertx;
+        if (timerVertx != null) {
+            timerVertx.cancelTimer(timerId);
+        }
+    }
+
+    /**
+     * Load the file again if it has changed since it was last loaded.
+     *
+     * @return <code>true</code> if a new list has been loaded
+     */
+    boolean reload() {
+        try {
+            final BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            final Version current = new Version(attributes.lastModifiedTime().toMillis(), attributes.size());
+            if (current.equals(version)) {
+                return false;
+            }
+            final IpFilterList loaded = MappedIpRangeTable.isRangeFile(path)
+                ? IpFilterList.of(MappedIpRangeTable.open(path))
+                : IpFilterList.compile(read(path), inclusiveHostCount, strategy);
+            list.set(loaded.isEmpty() ? IpFilterList.MATCHING_NOTHING : loaded);
+            version = current;
+            LOGGER.info("IP filtering list loaded from {}", path);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("Unable to load IP filtering list from {}, keeping the previous one", path, e);
+            return false;
+        }
+    }
+
+    static Set<String> read(Path path) throws IOException {
+        final Set<String> entries = new LinkedHashSet<>();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final int comment = line.indexOf('#');
+                final String content = comment != -1 ? line.substring(0, comment) : line;
+                for (String entry : content.split(",")) {
+                    final String trimmed = entry.trim();
+                    if (!trimmed.isEmpty()) {
+                        entries.add(trimmed);
+                    }
+                }
+            }
+        }
+        return entries;
+    }
+
+    private record Key(Path path, boolean inclusiveHostCount, IpMatchStrategy strategy) {}
+
+    private record Version(long lastModified, long size) {}
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.ipfiltering;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HexFormat;
+
+/**
+ * IpFilterListRegistry shares compiled lists across all the policy instances of the gateway, so that APIs configured with the same
+ * list (e.g. a corporate blocklist) use a single in-memory structure, compiled once.
+ * <p>
+ * Lists are identified by a digest of their entries, whatever their order, and are released once no policy instance uses them anymore.
+ */
+public final class IpFilterListRegistry {
+
+    private static final Cache<Key, IpFilterList> LISTS = CacheBuilder.newBuilder().weakValues().build();
+
+    private IpFilterListRegistry() {}
+
+    /**
+     * @return the compiled list shared by all the policy instances configured with the same entries, see
+     * {@link IpFilterList#compile(Collection, boolean, IpMatchStrategy)}
+     */
+    public static IpFilterList intern(Collection<String> entries, boolean inclusiveHostCount, IpMatchStrategy strategy) {
+        if (entries.isEmpty()) {
+            return IpFilterList.EMPTY;
+        }
+        final Key key = new Key(digest(entries), inclusiveHostCount, strategy);
+        return LISTS.asMap().computeIfAbsent(key, __ -> IpFilterList.compile(entries, inclusiveHostCount, strategy));
+    }
+
+    static long size() {
+        LISTS.cleanUp();
+        return LISTS.size();
+    }
+
+    private static String digest(Collection<String> entries) {
+        final String[] sorted = entries.toArray(new String[0]);
+        Arrays.sort(sorted);
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String entry : sorted) {
+                digest.update(entry.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) '\n');
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private record Key(String digest, boolean inclusiveHostCount, IpMatchStrategy strategy) {}
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.ipfiltering;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.gravitee.gateway.api.ExecutionContext;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * IpFilterListTemplate holds a whitelist or a blacklist as configured on the policy.
+ * Static entries are compiled once, when the policy is created, and shared with the other policy instances configured with the same
+ * entries through the {@link IpFilterListRegistry}. Only the entries containing an EL expression are evaluated, and compiled, when a
+ * request is processed.
+ * <p>
+ * The list may also be completed by the entries of a file, see {@link IpFilterListFile}.
+ * <p>
+ * The compiled form of the evaluated entries is kept in an immutable snapshot, replaced as a whole: it is only compiled again when the
+ * values of the expressions change, so that requests share it without any lock. The lists merged for the last evaluated values are
+ * also kept in a bounded cache, so that expressions alternating between a few values neither compile nor merge them again, and resolve
+ * to the same list each time. This cache is dropped when the list it has been merged with changes, i.e. when the file is reloaded.
+ */
+public final class IpFilterListTemplate {
+
+    private static final int MAX_EVALUATED_LISTS = 64;
+
+    private static final IpFilterListTemplate EMPTY = new IpFilterListTemplate(
+        IpFilterList.EMPTY,
+        List.of(),
+        null,
+        false,
+        IpMatchStrategy.TRIE
+    );
+
+    private final IpFilterList staticList;
+    private final List<String> expressions;
+    private final String filePath;
+    private volatile IpFilterListFile file;
+    private final boolean inclusiveHostCount;
+    private final IpMatchStrategy strategy;
+    private volatile FileSnapshot fileSnapshot;
+    private volatile EvaluatedLists evaluatedLists;
+    private volatile DynamicSnapshot dynamicSnapshot;
+
+    private IpFilterListTemplate(
+        IpFilterList staticList,
+        List<String> expressions,
+        String filePath,
+        boolean inclusiveHostCount,
+        IpMatchStrategy strategy
+    ) {
+        this.staticList = staticList;
+        this.expressions = expressions;
+        this.filePath = filePath;
+        this.inclusiveHostCount = inclusiveHostCount;
+        this.strategy = strategy;
+    }
+
+    /**
+     * @param entries The list as configured. Each entry may be a comma-separated list and may contain EL expressions.
+     * @param inclusiveHostCount true if the network and broadcast addresses of an IPv4 CIDR must be matched
+     * @param strategy The data structure used to match IP and CIDR entries
+     * @return the template
+     */
+    public static IpFilterListTemplate compile(List<String> entries, boolean inclusiveHostCount, IpMatchStrategy strategy) {
+        return compile(entries, null, inclusiveHostCount, strategy);
+    }
+
+    /**
+     * @param entries The list as configured. Each entry may be a comma-separated list and may contain EL expressions.
+     * @param file The path of a file completing the list, relative to the directory configured on the gateway, may be <code>null</code>
+     * @param inclusiveHostCount true if the network and broadcast addresses of an IPv4 CIDR must be matched
+     * @param strategy The data structure used to match IP and CIDR entries
+     * @return the template
+     */
+    public static IpFilterListTemplate compile(List<String> entries, String file, boolean inclusiveHostCount, IpMatchStrategy strategy) {
+        final boolean hasFile = file != null && !file.isBlank();
+        if ((entries == null || entries.isEmpty()) && !hasFile) {
+            return EMPTY;
+        }
+        final Set<String> staticEntries = new LinkedHashSet<>();
+        final List<String> expressions = new ArrayList<>();
+        for (String entry : entries == null ? List.<String>of() : entries) {
+            if (entry == null) {
+                continue;
+            }
+            if (isExpression(entry)) {
+                expressions.add(entry);
+            } else {
+                split(entry, staticEntries);
+            }
+        }
+        return new IpFilterListTemplate(
+            IpFilterListRegistry.intern(staticEntries, inclusiveHostCount, strategy),
+            List.copyOf(expressions),
+            hasFile ? file.trim() : null,
+            inclusiveHostCount,
+            strategy
+        );
+    }
+
+    /**
+     * @return the compiled list, completed with the values of the EL expressions evaluated against the given context
+     */
+    @SuppressWarnings({ "removal" })
+    public IpFilterList resolve(ExecutionContext ctx) {
+        final IpFilterList baseList = filePath == null ? staticList : withFile(ctx);
+        if (expressions.isEmpty()) {
+            return baseList;
+        }
+        final String[] values = new String[expressions.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = ctx.getTemplateEngine().getValue(expressions.get(i), String.class);
+        }
+        final int hash = Arrays.hashCode(values);
+        final DynamicSnapshot snapshot = dynamicSnapshot;
+        if (snapshot != null && snapshot.baseList == baseList && snapshot.hash == hash && Arrays.equals(snapshot.values, values)) {
+            return snapshot.list;
+        }
+
+        EvaluatedLists lists = evaluatedLists;
+        if (lists == null || lists.baseList != baseList) {
+            lists = new EvaluatedLists(baseList, CacheBuilder.newBuilder().maximumSize(MAX_EVALUATED_LISTS).build());
+            evaluatedLists = lists;
+        }
+        final IpFilterList list = lists.merged.asMap().computeIfAbsent(Arrays.asList(values), key -> baseList.union(compileValues(key)));
+        dynamicSnapshot = new DynamicSnapshot(baseList, values, hash, list);
+        return list;
+    }
+
+    private IpFilterList compileValues(List<String> values) {
+        final Set<String> dynamicEntries = new LinkedHashSet<>();
+        for (String value : values) {
+            split(value, dynamicEntries);
+        }
+        return IpFilterList.compile(dynamicEntries, inclusiveHostCount, strategy);
+    }
+
+    private IpFilterList withFile(ExecutionContext ctx) {
+        IpFilterListFile file = this.file;
+        if (file == null) {
+            // Resolved against the directory configured on the gateway, once a request gives access to its configuration
+            file = IpFilterListFile.of(ctx, filePath, inclusiveHostCount, strategy);
+            this.file = file;
+        }
+        if (ctx != null) {
+            file.watch(ctx);
+        }
+        final IpFilterList fileList = file.get();
+        FileSnapshot snapshot = fileSnapshot;
+        if (snapshot == null || snapshot.fileList != fileList) {
+            // The file has been reloaded: merge it once with the static entries
+            snapshot = new FileSnapshot(fileList, staticList.union(fileList));
+            fileSnapshot = snapshot;
+        }
+        return snapshot.list;
+    }
+
+    public boolean isDynamic() {
+        return !expressions.isEmpty();
+    }
+
+    static boolean isExpression(String entry) {
+        return entry.indexOf('{') != -1;
+    }
+
+    private static void split(String value, Set<String> entries) {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        Arrays.stream(value.split(",")).map(String::trim).filter(item -> !item.isEmpty()).forEach(entries::add);
+    }
+
+    private record FileSnapshot(IpFilterList fileList, IpFilterList list) {}
+
+    private record EvaluatedLists(IpFilterList baseList, Cache<List<String>, IpFilterList> merged) {}
+
+    private record DynamicSnapshot(IpFilterList baseList, String[] values, int hash, IpFilterList list) {}
+}
@@ -0,0 +1,284 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.ipfiltering;
+
+import io.gravitee.node.logging.NodeLoggerFactory;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.slf4j.Logger;
+
+/**
+ * IpFilteringMetrics counts the decisions of all the policy instances of the gateway, what they matched, and how long they spent
+ * matching lists and waiting on DNS. Counters are {@link LongAdder}s, striped per thread, so that event loops never contend on them.
+ * <p>
+ * The metrics are exposed through JMX as <code>io.gravitee.policy.ipfiltering:type=IpFilteringMetrics</code>, until the plugin is
+ * deactivated, see {@link IpFilteringPolicyContext}.
+ */
+public final class IpFilteringMetrics implements IpFilteringMetricsMBean {
+
+    private static final Logger LOGGER = NodeLoggerFactory.getLogger(IpFilteringMetrics.class);
+
+    static final String OBJECT_NAME = "io.gravitee.policy.ipfiltering:type=IpFilteringMetrics";
+
+    public static final IpFilteringMetrics INSTANCE = register(new IpFilteringMetrics());
+
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder deniedByBlacklist = new LongAdder();
+    private final LongAdder deniedByWhitelist = new LongAdder();
+    private final LongAdder deniedByAutoBan = new LongAdder();
+    private final LongAdder autoBans = new LongAdder();
+    private final LongAdder ipMatches = new LongAdder();
+    private final LongAdder cidrMatches = new LongAdder();
+    private final LongAdder hostMatches = new LongAdder();
+    private final LongAdder decisionCacheHits = new LongAdder();
+    private final LongAdder decisionCacheMisses = new LongAdder();
+    private final LongAdder dnsCacheHits = new LongAdder();
+    private final LongAdder dnsResolutions = new LongAdder();
+    private final LongAdder dnsFailures = new LongAdder();
+    private final LongAdder dnsRefreshes = new LongAdder();
+    private final LongAdder dnsRefreshFailures = new LongAdder();
+    private final LatencyHistogram matchTime = new LatencyHistogram();
+    private final LatencyHistogram dnsTime = new LatencyHistogram();
+
+    IpFilteringMetrics() {}
+
+    static IpFilteringMetrics register(IpFilteringMetrics metrics) {
+        try {
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            final ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                // Left by a previous deployment of the plugin
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(metrics, name);
+        } catch (JMException | RuntimeException e) {
+            LOGGER.warn("Unable to expose the IP filtering metrics through JMX", e);
+        }
+        return metrics;
+    }
+
+    /**
+     * Stop exposing the metrics through JMX, so that the MBean server does not keep the classloader of the plugin.
+     */
+    static void unregister() {
+        try {
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            final ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (JMException | RuntimeException e) {
+            LOGGER.warn("Unable to unregister the IP filtering metrics from JMX", e);
+        }
+    }
+
+    void decided(DecisionCache.Decision decision) {
+        switch (decision.outcome()) {
+            case ALLOWED -> allowed.increment();
+            case BLACKLISTED -> deniedByBlacklist.increment();
+            case NOT_WHITELISTED -> deniedByWhitelist.increment();
+            case BANNED -> deniedByAutoBan.increment();
+        }
+    }
+
+    void autoBanned() {
+        autoBans.increment();
+    }
+
+    /**
+     * @param rule The IP or CIDR entry matching the client IP
+     */
+    void matched(IpRange rule) {
+        if (rule.isSingleAddress()) {
+            ipMatches.increment();
+        } else {
+            cidrMatches.increment();
+        }
+    }
+
+    void hostMatched() {
+        hostMatches.increment();
+    }
+
+    void decisionCacheHit() {
+        decisionCacheHits.increment();
+    }
+
+    void decisionCacheMiss() {
+        decisionCacheMisses.increment();
+    }
+
+    void matchTime(long nanos) {
+        matchTime.record(nanos);
+    }
+
+    /**
+     * A lookup made for a request has been served without a DNS query of its own: from the cache, or by waiting for the resolution of
+     * the same host already in flight.
+     */
+    void dnsCacheHit() {
+        dnsCacheHits.increment();
+    }
+
+    /**
+     * A lookup made for a request has been resolved by a DNS query.
+     *
+     * @param nanos How long the resolution took
+     * @param succeeded false if the resolution failed
+     */
+    void dnsResolved(long nanos, boolean succeeded) {
+        dnsResolutions.increment();
+        if (!succeeded) {
+            dnsFailures.increment();
+        }
+        dnsTime.record(nanos);
+    }
+
+    /**
+     * A cached host has been resolved again in the background, no request waited for it.
+     *
+     * @param succeeded false if the resolution failed
+     */
+    void dnsRefreshed(boolean succeeded) {
+        dnsRefreshes.increment();
+        if (!succeeded) {
+            dnsRefreshFailures.increment();
+        }
+    }
+
+    @Override
+    public long getAllowed() {
+        return allowed.sum();
+    }
+
+    @Override
+    public long getDeniedByBlacklist() {
+        return deniedByBlacklist.sum();
+    }
+
+    @Override
+    public long getDeniedByWhitelist() {
+        return deniedByWhitelist.sum();
+    }
+
+    @Override
+    public long getDeniedByAutoBan() {
+        return deniedByAutoBan.sum();
+    }
+
+    @Override
+    public long getAutoBans() {
+        return autoBans.sum();
+    }
+
+    @Override
+    public long getIpMatches() {
+        return ipMatches.sum();
+    }
+
+    @Override
+    public long getCidrMatches() {
+        return cidrMatches.sum();
+    }
+
+    @Override
+    public long getHostMatches() {
+        return hostMatches.sum();
+    }
+
+    @Override
+    public long getDecisionCacheHits() {
+        return decisionCacheHits.sum();
+    }
+
+    @Override
+    public long getDecisionCacheMisses() {
+        return decisionCacheMisses.sum();
+    }
+
+    @Override
+    public double getDecisionCacheHitRatio() {
+        return ratio(decisionCacheHits.sum(), decisionCacheMisses.sum());
+    }
+
+    @Override
+    public long getDnsCacheHits() {
+        return dnsCacheHits.sum();
+    }
+
+    @Override
+    public long getDnsResolutions() {
+        return dnsResolutions.sum();
+    }
+
+    @Override
+    public long getDnsFailures() {
+        return dnsFailures.sum();
+    }
+
+    @Override
+    public long getDnsRefreshes() {
+        return dnsRefreshes.sum();
+    }
+
+    @Override
+    public long getDnsRefreshFailures() {
+        return dnsRefreshFailures.sum();
+    }
+
+    @Override
+    public double getDnsCacheHitRatio() {
+        return ratio(dnsCacheHits.sum(), dnsResolutions.sum());
+    }
+
+    @Override
+    public long getMatchTimeMean() {
+        return matchTime.meanNanos();
+    }
+
+    @Override
+    public long getMatchTimeP50() {
+        return matchTime.percentileNanos(0.5);
+    }
+
+    @Override
+    public long getMatchTimeP99() {
+        return matchTime.percentileNanos(0.99);
+    }
+
+    @Override
+    public long getDnsTimeMean() {
+        return dnsTime.meanNanos();
+    }
+
+    @Override
+    public long getDnsTimeP50() {
+        return dnsTime.percentileNanos(0.5);
+    }
+
+    @Override
+    public long getDnsTimeP99() {
+        return dnsTime.percentileNanos(0.99);
+    }
+
+    private static double ratio(long hits, long misses) {
+        final long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+}
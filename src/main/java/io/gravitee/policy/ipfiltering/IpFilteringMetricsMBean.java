@@ -0,0 +1,67 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.ipfiltering;
+
+/**
+ * Management interface of {@link IpFilteringMetrics}. Durations are in nanoseconds.
+ */
+public interface IpFilteringMetricsMBean {
+    long getAllowed();
+
+    long getDeniedByBlacklist();
+
+    long getDeniedByWhitelist();
+
+    long getDeniedByAutoBan();
+
+    long getAutoBans();
+
+    long getIpMatches();
+
+    long getCidrMatches();
+
+    long getHostMatches();
+
+    long getDecisionCacheHits();
+
+    long getDecisionCacheMisses();
+
+    double getDecisionCacheHitRatio();
+
+    long getDnsCacheHits();
+
+    long getDnsResolutions();
+
+    long getDnsFailures();
+
+    long getDnsRefreshes();
+
+    long getDnsRefreshFailures();
+
+    double getDnsCacheHitRatio();
+
+    long getMatchTimeMean();
+
+    long getMatchTimeP50();
+
+    long getMatchTimeP99();
+
+    long getDnsTimeMean();
+
+    long getDnsTimeP50();
+
+    long getDnsTimeP99();
+}
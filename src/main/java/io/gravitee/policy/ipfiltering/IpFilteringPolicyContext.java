@@ -0,0 +1,33 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.ipfiltering;
+
+import io.gravitee.policy.api.PolicyContext;
+
+/**
+ * IpFilteringPolicyContext is notified by the gateway when the plugin is activated and deactivated. On deactivation, it releases what
+ * the policy registered outside of the plugin, so that an undeployed or upgraded plugin can be garbage collected.
+ */
+public final class IpFilteringPolicyContext implements PolicyContext {
+
+    @Override
+    public void onDeactivation() {
+        IpFilteringMetrics.unregister();
+        IpFilterListFile.closeAll();
+        BanReplica.closeAll();
+        LazyDnsClient.close();
+    }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.ipfiltering;
+
+/**
+ * The data structure used to match the IP and CIDR entries of a list.
+ */
+public enum IpMatchStrategy {
+    /**
+     * Prefix trie, keeping track of each configured entry. Best suited to lists up to a few tens of thousands of entries.
+     */
+    TRIE,
+    /**
+     * Sorted table of merged address ranges stored in primitive arrays. Best suited to very large lists (countries, ASNs, threat
+     * intelligence feeds), at the cost of reporting the merged range rather than the configured entry on a match.
+     */
+    RANGE_TABLE,
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.ipfiltering;
+
+/**
+ * IpMatcher is a compiled set of IP and CIDR rules, built once from a whitelist or blacklist and queried for each request.
+ * Implementations are immutable and can safely be shared between threads.
+ */
+public interface IpMatcher {
+    IpMatcher NONE = address -> null;
+
+    /**
+     * @param address The IP address to check
+     * @return the rule matching the given IP address or <code>null</code> if there is no match
+     */
+    IpRange match(IpAddress address);
+
+    /**
+     * @param address The IP address to check, may be <code>null</code>
+     * @return true if a rule matches the given IP address, implementations should not build the rule to tell so
+     */
+    default boolean matches(IpAddress address) {
+        return address != null && match(address) != null;
+    }
+
+    static IpMatcher union(IpMatcher first, IpMatcher second) {
+        if (first == NONE) {
+            return second;
+        }
+        if (second == NONE) {
+            return first;
+        }
+        return new IpMatcher() {
+            @Override
+            public IpRange match(IpAddress address) {
+                final IpRange rule = first.match(address);
+                return rule != null ? rule : second.match(address);
+            }
+
+            @Override
+            public boolean matches(IpAddress address) {
+                return first.matches(address) || second.matches(address);
+            }
+        };
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.ipfiltering;
+
+import java.util.Collection;
+
+/**
+ * IpPrefixTrie is a path-compressed binary (Patricia) trie of IPv4 and IPv6 prefixes, answering a longest-prefix match.
+ * A lookup walks at most one node per distinct prefix length on the path of the address, so its cost depends on the address
+ * width rather than on the number of entries.
+ * <p>
+ * The trie is fully built by {@link #compile(Collection)} and never modified afterwards.
+ */
+public final class IpPrefixTrie implements IpMatcher {
+
+    private final Node ipv4Root = new Node(0, 0, 0);
+    private final Node ipv6Root = new Node(0, 0, 0);
+    private final int size;
+
+    private IpPrefixTrie(Collection<IpRange> ranges) {
+        for (IpRange range : ranges) {
+            if (range.isIpv6()) {
+                insert(ipv6Root, range.networkHigh(), range.networkLow(), range.prefixLength(), range);
+            } else {
+                insert(ipv4Root, range.networkLow() << 32, 0, range.prefixLength(), range);
+            }
+        }
+        this.size = ranges.size();
+    }
+
+    /**
+     * @param ranges The compiled entries of a list
+     * @return the trie, or {@link IpMatcher#NONE} if there is no entry
+     */
+    public static IpMatcher compile(Collection<IpRange> ranges) {
+        return ranges.isEmpty() ? NONE : new IpPrefixTrie(ranges);
+    }
+
+    @Override
+    public IpRange match(IpAddress address) {
+        if (address.isIpv6()) {
+            return lookup(ipv6Root, address.high(), address.low(), 128, address);
+        }
+        return lookup(ipv4Root, address.low() << 32, 0, 32, address);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private static IpRange lookup(Node node, long high, long low, int maxLength, IpAddress address) {
+        IpRange best = null;
+        while (node != null && commonPrefixLength(high, low, node.high, node.low) >= node.length) {
+            // A CIDR whose network and broadcast addresses are excluded may reject an address covered by its prefix.
+            if (node.range != null && node.range.contains(address)) {
+                best = node.range;
+            }
+            if (node.length == maxLength) {
+                break;
+            }
+            node = node.children[bitAt(high, low, node.length)];
+        }
+        return best;
+    }
+
+    private static void insert(Node root, long high, long low, int length, IpRange range) {
+        Node node = root;
+        while (true) {
+            if (node.length == length) {
+                if (node.range == null) {
+                    node.range = range;
+                }
+                return;
+            }
+            final int bit = bitAt(high, low, node.length);
+            final Node child = node.children[bit];
+            if (child == null) {
+                node.children[bit] = new Node(high, low, length).withRange(range);
+                return;
+            }
+            final int common = Math.min(Math.min(commonPrefixLength(high, low, child.high, child.low), length), child.length);
+            if (common == child.length) {
+                node = child;
+                continue;
+            }
+            final Node split = new Node(high, low, common);
+            node.children[bit] = split;
+            split.children[bitAt(child.high, child.low, common)] = child;
+            if (common == length) {
+                split.range = range;
+            } else {
+                split.children[bitAt(high, low, common)] = new Node(high, low, length).withRange(range);
+            }
+            return;
+        }
+    }
+
+    private static int commonPrefixLength(long high, long low, long otherHigh, long otherLow) {
+        if (high != otherHigh) {
+            return Long.numberOfLeadingZeros(high ^ otherHigh);
+        }
+        return 64 + Long.numberOfLeadingZeros(low ^ otherLow);
+    }
+
+    private static int bitAt(long high, long low, int index) {
+        return (int) (index < 64 ? (high >>> (63 - index)) & 1 : (low >>> (127 - index)) & 1);
+    }
+
+    private static final class Node {
+
+        private final long high;
+        private final long low;
+        private final int length;
+        private final Node[] children = new Node[2];
+        private IpRange range;
+
+        private Node(long high, long low, int length) {
+            this.high = length == 0 ? 0 : length >= 64 ? high : high & (-1L << (64 - length));
+            this.low = length <= 64 ? 0 : length == 128 ? low : low & (-1L << (128 - length));
+            this.length = length;
+        }
+
+        private Node withRange(IpRange range) {
+            this.range = range;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.ipfiltering;
+
+/**
+ * IpRange is a compiled whitelist or blacklist entry: a single IP address or a CIDR block.
+ * <p>
+ * IPv4 CIDR blocks follow the commons-net <code>SubnetUtils</code> semantic historically used by the policy: unless the inclusive host
+ * count is enabled, the network and broadcast addresses are not part of the range, and <code>0.0.0.0</code> never is.
+ * IPv6 CIDR blocks always include all their addresses.
+ */
+public final class IpRange {
+
+    private static final long IPV4_MASK = 0xFFFFFFFFL;
+
+    // Built when first reported for a range which does not come from a single entry
+    private String source;
+    private final boolean ipv6;
+    private final int prefixLength;
+    private final long networkHigh;
+    private final long networkLow;
+    private final long firstHigh;
+    private final long firstLow;
+    private final long lastHigh;
+    private final long lastLow;
+
+    private IpRange(
+        String source,
+        boolean ipv6,
+        int prefixLength,
+        long networkHigh,
+        long networkLow,
+        long firstHigh,
+        long firstLow,
+        long lastHigh,
+        long lastLow
+    ) {
+        this.source = source;
+        this.ipv6 = ipv6;
+        this.prefixLength = prefixLength;
+        this.networkHigh = networkHigh;
+        this.networkLow = networkLow;
+        this.firstHigh = firstHigh;
+        this.firstLow = firstLow;
+        this.lastHigh = lastHigh;
+        this.lastLow = lastLow;
+    }
+
+    /**
+     * @param entry An IP address, with or without CIDR notation
+     * @param inclusiveHostCount true if the network and broadcast addresses of an IPv4 CIDR must be matched
+     * @return the compiled range, or <code>null</code> if the entry is not valid or can not match any address
+     */
+    public static IpRange parse(String entry, boolean inclusiveHostCount) {
+        final int index = entry.indexOf('/');
+        final IpAddress address = IpAddress.parse(entry, 0, index == -1 ? entry.length() : index);
+        if (address == null) {
+            return null;
+        }
+        if (index == -1) {
+            final long high = address.high();
+            final long low = address.low();
+            return new IpRange(entry, address.isIpv6(), address.isIpv6() ? 128 : 32, high, low, high, low, high, low);
+        }
+        int prefixLength = parsePrefixLength(entry, index + 1);
+        if (prefixLength == -1) {
+            return null;
+        }
+        if (!address.isIpv6() && entry.lastIndexOf(':', index) != -1) {
+            // An IPv4-mapped IPv6 block, of an IPv4 address parsed as such
+            if (prefixLength < 96) {
+                return null;
+            }
+            prefixLength -= 96;
+        }
+        return address.isIpv6() ? ipv6Block(entry, address, prefixLength) : ipv4Block(entry, address, prefixLength, inclusiveHostCount);
+    }
+
+    /**
+     * @return the range of addresses between <code>first</code> and <code>last</code>, both included
+     */
+    static IpRange between(boolean ipv6, long firstHigh, long firstLow, long lastHigh, long lastLow) {
+        return new IpRange(null, ipv6, -1, firstHigh, firstLow, firstHigh, firstLow, lastHigh, lastLow);
+    }
+
+    private static int parsePrefixLength(String entry, int from) {
+        if (from == entry.length() || entry.length() - from > 3) {
+            return -1;
+        }
+        int prefixLength = 0;
+        for (int i = from; i < entry.length(); i++) {
+            final char c = entry.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            prefixLength = prefixLength * 10 + (c - '0');
+        }
+        return prefixLength;
+    }
+
+    private static IpRange ipv4Block(String entry, IpAddress address, int prefixLength, boolean inclusiveHostCount) {
+        if (prefixLength < 0 || prefixLength > 32) {
+            return null;
+        }
+        final long mask = prefixLength == 0 ? 0 : (IPV4_MASK << (32 - prefixLength)) & IPV4_MASK;
+        final long network = address.low() & mask;
+        final long broadcast = network | (~mask & IPV4_MASK);
+        long first = network;
+        long last = broadcast;
+        if (!inclusiveHostCount) {
+            if (broadcast - network <= 1) {
+                return null;
+            }
+            first++;
+            last--;
+        }
+        first = Math.max(first, 1);
+        if (first > last) {
+            return null;
+        }
+        return new IpRange(entry, false, prefixLength, 0, network, 0, first, 0, last);
+    }
+
+    private static IpRange ipv6Block(String entry, IpAddress address, int prefixLength) {
+        if (prefixLength < 0 || prefixLength > 128) {
+            return null;
+        }
+        final long highMask = prefixLength == 0 ? 0 : prefixLength >= 64 ? -1L : -1L << (64 - prefixLength);
+        final long lowMask = prefixLength <= 64 ? 0 : prefixLength == 128 ? -1L : -1L << (128 - prefixLength);
+        final long high = address.high() & highMask;
+        final long low = address.low() & lowMask;
+        return new IpRange(entry, true, prefixLength, high, low, high, low, high | ~highMask, low | ~lowMask);
+    }
+
+    public boolean contains(IpAddress address) {
+        if (address.isIpv6() != ipv6) {
+            return false;
+        }
+        return (
+            compare(address.high(), address.low(), firstHigh, firstLow) >= 0 &&
+            compare(address.high(), address.low(), lastHigh, lastLow) <= 0
+        );
+    }
+
+    static int compare(long high, long low, long otherHigh, long otherLow) {
+        final int result = Long.compareUnsigned(high, otherHigh);
+        return result != 0 ? result : Long.compareUnsigned(low, otherLow);
+    }
+
+    /**
+     * @return the entry as it has been configured, or <code>first-last</code> for a range which does not come from a single entry
+     */
+    public String source() {
+        String value = source;
+        if (value == null) {
+            value = ipv6
+                ? IpAddress.ipv6(firstHigh, firstLow) + "-" + IpAddress.ipv6(lastHigh, lastLow)
+                : IpAddress.ipv4(firstLow) + "-" + IpAddress.ipv4(lastLow);
+            source = value;
+        }
+        return value;
+    }
+
+    /**
+     * @return true if the range holds a single address, i.e. comes from an IP rather than a CIDR
+     */
+    public boolean isSingleAddress() {
+        return firstHigh == lastHigh && firstLow == lastLow;
+    }
+
+    public boolean isIpv6() {
+        return ipv6;
+    }
+
+    /**
+     * @return the CIDR prefix length, or <code>-1</code> if the range does not come from a single entry
+     */
+    public int prefixLength() {
+        return prefixLength;
+    }
+
+    public long networkHigh() {
+        return networkHigh;
+    }
+
+    public long networkLow() {
+        return networkLow;
+    }
+
+    public long firstHigh() {
+        return firstHigh;
+    }
+
+    public long firstLow() {
+        return firstLow;
+    }
+
+    public long lastHigh() {
+        return lastHigh;
+    }
+
+    public long lastLow() {
+        return lastLow;
+    }
+
+    @Override
+    public String toString() {
+        return source();
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.ipfiltering;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * IpRangeFileConverter converts a text list of IPs and CIDRs, in the format of {@link IpFilterListFile}, into the binary range file
+ * mapped by {@link MappedIpRangeTable}:
+ * <pre>
+ * java -cp gravitee-policy-ipfiltering.jar io.gravitee.policy.ipfiltering.IpRangeFileConverter \
+ *     [--inclusive-host-count] input.txt output.bin
+ * </pre>
+ * Host entries cannot be stored in a range file and are skipped.
+ */
+public final class IpRangeFileConverter {
+
+    private static final String INCLUSIVE_HOST_COUNT = "--inclusive-host-count";
+
+    private IpRangeFileConverter() {}
+
+    public static void main(String[] args) throws IOException {
+        final boolean inclusiveHostCount = args.length == 3 && INCLUSIVE_HOST_COUNT.equals(args[0]);
+        if (args.length != (inclusiveHostCount ? 3 : 2)) {
+            System.err.println("Usage: IpRangeFileConverter [" + INCLUSIVE_HOST_COUNT + "] <input text file> <output range file>");
+            System.exit(2);
+        }
+        final int first = inclusiveHostCount ? 1 : 0;
+        final Result result = convert(Path.of(args[first]), Path.of(args[first + 1]), inclusiveHostCount);
+        System.out.println("Wrote " + result.ranges() + " ranges to " + args[first + 1]);
+        System.out.println("Skipped " + result.skipped() + " entries that are not IPs or CIDRs");
+    }
+
+    /**
+     * @return the number of merged ranges written and the number of entries skipped
+     */
+    static Result convert(Path input, Path output, boolean inclusiveHostCount) throws IOException {
+        final List<IpRange> ranges = new ArrayList<>();
+        int skipped = 0;
+        for (String entry : IpFilterListFile.read(input)) {
+            final IpRange range = IpRange.parse(entry, inclusiveHostCount);
+            if (range != null) {
+                ranges.add(range);
+            } else {
+                skipped++;
+            }
+        }
+        final IpMatcher compiled = IpRangeTable.compile(ranges);
+        final IpRangeTable table = compiled instanceof IpRangeTable rangeTable
+            ? rangeTable
+            : new IpRangeTable(new int[0], new int[0], new long[0], new long[0]);
+        MappedIpRangeTable.write(table, output);
+        return new Result(table.size(), skipped);
+    }
+
+    record Result(int ranges, int skipped) {}
+}
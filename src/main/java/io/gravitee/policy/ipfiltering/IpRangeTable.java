@@ -0,0 +1,198 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.ipfiltering;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * IpRangeTable stores the entries of a list as sorted, merged and non-overlapping <code>[first, last]</code> address ranges held in
+ * primitive arrays. A lookup is a binary search, and the whole table costs 8 bytes per IPv4 range and 32 bytes per IPv6 range.
+ * <p>
+ * As ranges are merged, a match is reported as the merged range rather than as one of the configured entries.
+ */
+public final class IpRangeTable implements IpMatcher {
+
+    private final int[] ipv4Firsts;
+    private final int[] ipv4Lasts;
+    // IPv6 bounds are stored as (high, low) pairs
+    private final long[] ipv6Firsts;
+    private final long[] ipv6Lasts;
+
+    IpRangeTable(int[] ipv4Firsts, int[] ipv4Lasts, long[] ipv6Firsts, long[] ipv6Lasts) {
+        this.ipv4Firsts = ipv4Firsts;
+        this.ipv4Lasts = ipv4Lasts;
+        this.ipv6Firsts = ipv6Firsts;
+        this.ipv6Lasts = ipv6Lasts;
+    }
+
+    /**
+     * @param ranges The compiled entries of a list
+     * @return the table, or {@link IpMatcher#NONE} if there is no entry
+     */
+    public static IpMatcher compile(Collection<IpRange> ranges) {
+        if (ranges.isEmpty()) {
+            return NONE;
+        }
+        final List<IpRange> ipv4 = new ArrayList<>();
+        final List<IpRange> ipv6 = new ArrayList<>();
+        ranges.forEach(range -> (range.isIpv6() ? ipv6 : ipv4).add(range));
+        final Comparator<IpRange> byFirst = (r1, r2) -> IpRange.compare(r1.firstHigh(), r1.firstLow(), r2.firstHigh(), r2.firstLow());
+        ipv4.sort(byFirst);
+        ipv6.sort(byFirst);
+
+        final long[] v4 = merge(ipv4);
+        final int[] ipv4Firsts = new int[v4.length / 4];
+        final int[] ipv4Lasts = new int[v4.length / 4];
+        for (int i = 0; i < ipv4Firsts.length; i++) {
+            ipv4Firsts[i] = (int) v4[4 * i + 1];
+            ipv4Lasts[i] = (int) v4[4 * i + 3];
+        }
+        final long[] v6 = merge(ipv6);
+        final long[] ipv6Firsts = new long[v6.length / 2];
+        final long[] ipv6Lasts = new long[v6.length / 2];
+        for (int i = 0; i < v6.length / 4; i++) {
+            ipv6Firsts[2 * i] = v6[4 * i];
+            ipv6Firsts[2 * i + 1] = v6[4 * i + 1];
+            ipv6Lasts[2 * i] = v6[4 * i + 2];
+            ipv6Lasts[2 * i + 1] = v6[4 * i + 3];
+        }
+        return new IpRangeTable(ipv4Firsts, ipv4Lasts, ipv6Firsts, ipv6Lasts);
+    }
+
+    /**
+     * @return the merged ranges as consecutive (firstHigh, firstLow, lastHigh, lastLow) values
+     */
+    private static long[] merge(List<IpRange> sorted) {
+        final long[] merged = new long[sorted.size() * 4];
+        int count = 0;
+        for (IpRange range : sorted) {
+            if (count > 0) {
+                final int last = 4 * (count - 1);
+                if (isAdjacentOrOverlapping(merged[last + 2], merged[last + 3], range.firstHigh(), range.firstLow())) {
+                    if (IpRange.compare(range.lastHigh(), range.lastLow(), merged[last + 2], merged[last + 3]) > 0) {
+                        merged[last + 2] = range.lastHigh();
+                        merged[last + 3] = range.lastLow();
+                    }
+                    continue;
+                }
+            }
+            merged[4 * count] = range.firstHigh();
+            merged[4 * count + 1] = range.firstLow();
+            merged[4 * count + 2] = range.lastHigh();
+            merged[4 * count + 3] = range.lastLow();
+            count++;
+        }
+        return Arrays.copyOf(merged, 4 * count);
+    }
+
+    private static boolean isAdjacentOrOverlapping(long lastHigh, long lastLow, long firstHigh, long firstLow) {
+        if (IpRange.compare(firstHigh, firstLow, lastHigh, lastLow) <= 0) {
+            return true;
+        }
+        // first == last + 1
+        final long nextLow = lastLow + 1;
+        final long nextHigh = nextLow == 0 ? lastHigh + 1 : lastHigh;
+        return firstHigh == nextHigh && firstLow == nextLow;
+    }
+
+    @Override
+    public IpRange match(IpAddress address) {
+        if (address.isIpv6()) {
+            final int index = indexOfIpv6(address.high(), address.low());
+            return index == -1
+                ? null
+                : IpRange.between(true, ipv6Firsts[2 * index], ipv6Firsts[2 * index + 1], ipv6Lasts[2 * index], ipv6Lasts[2 * index + 1]);
+        }
+        final int index = indexOfIpv4((int) address.low());
+        return index == -1
+            ? null
+            : IpRange.between(false, 0, Integer.toUnsignedLong(ipv4Firsts[index]), 0, Integer.toUnsignedLong(ipv4Lasts[index]));
+    }
+
+    @Override
+    public boolean matches(IpAddress address) {
+        if (address == null) {
+            return false;
+        }
+        return (address.isIpv6() ? indexOfIpv6(address.high(), address.low()) : indexOfIpv4((int) address.low())) != -1;
+    }
+
+    /**
+     * @return the index of the range holding the address, or <code>-1</code> if there is none
+     */
+    private int indexOfIpv4(int address) {
+        // Search the last range starting before or at the address
+        int lowIndex = 0;
+        int highIndex = ipv4Firsts.length - 1;
+        int found = -1;
+        while (lowIndex <= highIndex) {
+            final int middle = (lowIndex + highIndex) >>> 1;
+            if (Integer.compareUnsigned(ipv4Firsts[middle], address) <= 0) {
+                found = middle;
+                lowIndex = middle + 1;
+            } else {
+                highIndex = middle - 1;
+            }
+        }
+        if (found == -1 || Integer.compareUnsigned(address, ipv4Lasts[found]) > 0) {
+            return -1;
+        }
+        return found;
+    }
+
+    private int indexOfIpv6(long high, long low) {
+        int lowIndex = 0;
+        int highIndex = ipv6Firsts.length / 2 - 1;
+        int found = -1;
+        while (lowIndex <= highIndex) {
+            final int middle = (lowIndex + highIndex) >>> 1;
+            if (IpRange.compare(ipv6Firsts[2 * middle], ipv6Firsts[2 * middle + 1], high, low) <= 0) {
+                found = middle;
+                lowIndex = middle + 1;
+            } else {
+                highIndex = middle - 1;
+            }
+        }
+        if (found == -1 || IpRange.compare(high, low, ipv6Lasts[2 * found], ipv6Lasts[2 * found + 1]) > 0) {
+            return -1;
+        }
+        return found;
+    }
+
+    public int size() {
+        return ipv4Firsts.length + ipv6Firsts.length / 2;
+    }
+
+    int[] ipv4Firsts() {
+        return ipv4Firsts;
+    }
+
+    int[] ipv4Lasts() {
+        return ipv4Lasts;
+    }
+
+    long[] ipv6Firsts() {
+        return ipv6Firsts;
+    }
+
+    long[] ipv6Lasts() {
+        return ipv6Lasts;
+    }
+}
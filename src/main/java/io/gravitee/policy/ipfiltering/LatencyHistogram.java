@@ -0,0 +1,83 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.ipfiltering;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LatencyHistogram records durations in buckets of increasing powers of two, so that recording is a couple of striped increments
+ * (no lock, no allocation) whatever the number of event loops recording concurrently. Percentiles are approximated by the upper bound
+ * of the bucket they fall in, i.e. within a factor of two.
+ */
+public final class LatencyHistogram {
+
+    // Bucket i counts the durations d such that 2^(i-1) <= d < 2^i, bucket 0 counts the zero durations
+    private static final int BUCKETS = 64;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * @param nanos The duration to record, negative durations are recorded as zero
+     */
+    public void record(long nanos) {
+        final long duration = Math.max(0, nanos);
+        buckets[64 - Long.numberOfLeadingZeros(duration)].increment();
+        count.increment();
+        sum.add(duration);
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    public long meanNanos() {
+        final long n = count.sum();
+        return n == 0 ? 0 : sum.sum() / n;
+    }
+
+    /**
+     * @param quantile The quantile, between 0 and 1
+     * @return an upper bound of the given quantile of the recorded durations, within a factor of two, or 0 if nothing is recorded
+     */
+    public long percentileNanos(double quantile) {
+        final long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        final long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return i == 0 ? 0 : (1L << i) - 1;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+}
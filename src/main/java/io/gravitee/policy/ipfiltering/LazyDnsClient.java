@@ -18,17 +18,33 @@ package io.gravitee.policy.ipfiltering;
 import io.gravitee.gateway.api.ExecutionContext;
 import io.gravitee.node.api.configuration.Configuration;
 import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
+import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
 import io.vertx.core.dns.DnsClient;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * LazyDnsClient is an abstract class that provides a lazy initialization of a DNS client. The DNS client is only created when required.
  * The class provides a static method `get` to retrieve the DNS client. If the DNS client has not been created yet, it will be lazily created based on configuration done at the Gateway level.
  * Once created, the DNS client will be cached and returned for subsequent calls.
+ * Resolved hosts are kept in a {@link DnsCache}, created along with the DNS client, so that host entries only cost a map lookup
+ * until their TTL expires. Concurrent lookups of a host that is not cached share a single DNS query.
+ * When refresh-ahead is enabled, a periodic timer resolves the cached hosts again before they expire so that requests keep being served
+ * from the cache without waiting for DNS.
+ * Client IPs can also be resolved to a verified host name (PTR record confirmed by a forward resolution), kept in a
+ * {@link ReverseDnsCache}.
+ * The {@link #generation()} changes whenever a cached resolution gets a different outcome, so that the decisions made on host entries
+ * can be cached until then. Resolving a host, or a client IP, for the first time does not change it: no cached decision depends on it.
+ * The DNS client, its caches and its refresh timer are created once, and published together, whatever the number of concurrent
+ * requests. They are released when the plugin is deactivated (see {@link IpFilteringPolicyContext}).
  *
  * @see DnsClient
  * @see ExecutionContext
@@ -37,16 +53,80 @@ public class LazyDnsClient {
 
     private LazyDnsClient() {}
 
-    private static DnsClient dnsClient;
+    private static volatile State state;
+
+    private static final AtomicLong GENERATION = new AtomicLong();
+
+    private static final IpFilteringMetrics METRICS = IpFilteringMetrics.INSTANCE;
+
+    /**
+     * The DNS client along with the caches of its resolutions.
+     *
+     * @param refreshTimerId The id of the refresh-ahead timer, or <code>-1</code> if the cached hosts are not refreshed in background
+     */
+    private record State(
+        Vertx vertx,
+        DnsClient client,
+        DnsCache dnsCache,
+        ReverseDnsCache reverseDnsCache,
+        Map<DnsCache.Key, Future<ResolvedAddresses>> inflightLookups,
+        long refreshTimerId
+    ) {}
 
     public static DnsClient get(ExecutionContext context) {
-        if (dnsClient == null) {
-            DnsConfiguration dnsConfiguration = new DnsConfiguration(context.getComponent(Configuration.class));
-            dnsConfiguration.getDnsClientOptions().setRecursionDesired(true);
-            dnsClient = context.getComponent(Vertx.class).createDnsClient(dnsConfiguration.getDnsClientOptions());
+        return state(context).client();
+    }
+
+    private static State state(ExecutionContext context) {
+        State current = state;
+        if (current == null) {
+            synchronized (LazyDnsClient.class) {
+                current = state;
+                if (current == null) {
+                    current = create(context);
+                    state = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private static State create(ExecutionContext context) {
+        DnsConfiguration dnsConfiguration = new DnsConfiguration(context.getComponent(Configuration.class));
+        dnsConfiguration.getDnsClientOptions().setRecursionDesired(true);
+        DnsCache dnsCache = dnsConfiguration.getDnsCache();
+        Map<DnsCache.Key, Future<ResolvedAddresses>> inflightLookups = new ConcurrentHashMap<>();
+        Vertx vertx = context.getComponent(Vertx.class);
+        DnsClient client = vertx.createDnsClient(dnsConfiguration.getDnsClientOptions());
+        long refreshTimerId = dnsConfiguration.isCacheRefreshAhead()
+            ? scheduleRefresh(vertx, client, dnsCache, inflightLookups, dnsConfiguration.getCacheRefreshInterval())
+            : -1;
+        return new State(vertx, client, dnsCache, dnsConfiguration.getReverseDnsCache(), inflightLookups, refreshTimerId);
+    }
+
+    /**
+     * Cancel the refresh of the cached hosts, close the DNS client and drop the caches. The next lookup creates them again.
+     */
+    static void close() {
+        State current;
+        synchronized (LazyDnsClient.class) {
+            current = state;
+            state = null;
+        }
+        if (current == null) {
+            return;
         }
+        if (current.refreshTimerId() >= 0) {
+            current.vertx().cancelTimer(current.refreshTimerId());
+        }
+        current.client().close();
+    }
 
-        return dnsClient;
+    /**
+     * @return a value that changes whenever the cached resolution of a host, or of a client IP, changes
+     */
+    public static long generation() {
+        return GENERATION.get();
     }
 
     public static void lookup(
@@ -55,24 +135,163 @@ public class LazyDnsClient {
         String host,
         Handler<AsyncResult<List<String>>> handler
     ) {
-        DnsClient client = get(executionContext);
+        lookupAddresses(executionContext, lookupIpVersion, host, result -> {
+            if (result.succeeded()) {
+                handler.handle(Future.succeededFuture(result.result().values()));
+            } else {
+                handler.handle(Future.failedFuture(result.cause()));
+            }
+        });
+    }
+
+    /**
+     * Resolve the given host, the addresses are returned in their numeric form so that client IPs can be checked with a hash lookup.
+     */
+    public static void lookupAddresses(
+        ExecutionContext executionContext,
+        LookupIpVersion lookupIpVersion,
+        String host,
+        Handler<AsyncResult<ResolvedAddresses>> handler
+    ) {
+        State current = state(executionContext);
+        DnsCache cache = current.dnsCache();
+
+        AsyncResult<ResolvedAddresses> cached = cache.get(host, lookupIpVersion);
+        if (cached != null) {
+            METRICS.dnsCacheHit();
+            handler.handle(cached);
+            return;
+        }
+
+        // Wait for the result on the context of the current request, the resolution may be shared with other requests
+        Context context = Vertx.currentContext();
+        DnsCache.Key key = new DnsCache.Key(host, lookupIpVersion);
+        resolveShared(current.client(), cache, current.inflightLookups(), key, false).onComplete(result ->
+            handleOn(context, handler, result)
+        );
+    }
+
+    /**
+     * Resolve the host name of the given address (PTR record) and confirm it with a forward resolution of that name. The handler
+     * receives the verified host name, or a <code>null</code> result if the address has none: an address that cannot be resolved is not
+     * reported as a failure since most client IPs have no PTR record.
+     */
+    public static void reverseLookup(ExecutionContext executionContext, IpAddress address, Handler<AsyncResult<String>> handler) {
+        State current = state(executionContext);
+        ReverseDnsCache cache = current.reverseDnsCache();
+
+        AsyncResult<String> cached = cache.get(address);
+        if (cached != null) {
+            METRICS.dnsCacheHit();
+            handler.handle(cached);
+            return;
+        }
+
+        Context context = Vertx.currentContext();
+        long start = System.nanoTime();
+        current
+            .client()
+            .reverseLookup(address.toString())
+            .onComplete(lookup -> METRICS.dnsResolved(System.nanoTime() - start, lookup.succeeded()))
+            .otherwise((String) null)
+            .compose(host -> host == null ? Future.<String>succeededFuture() : confirm(executionContext, address, host))
+            .onComplete(result -> {
+                if (cache.put(address, result)) {
+                    GENERATION.incrementAndGet();
+                }
+                handleOn(context, handler, result);
+            });
+    }
+
+    private static Future<String> confirm(ExecutionContext executionContext, IpAddress address, String host) {
+        Promise<String> promise = Promise.promise();
+        String name = HostPatternSet.normalize(host);
+        LookupIpVersion lookupIpVersion = address.isIpv6() ? LookupIpVersion.IPV6 : LookupIpVersion.IPV4;
+        lookupAddresses(executionContext, lookupIpVersion, name, result ->
+            promise.complete(result.succeeded() && result.result().contains(address) ? name : null)
+        );
+        return promise.future();
+    }
+
+    private static <T> void handleOn(Context context, Handler<AsyncResult<T>> handler, AsyncResult<T> result) {
+        if (context == null || context == Vertx.currentContext()) {
+            handler.handle(result);
+        } else {
+            context.runOnContext(__ -> handler.handle(result));
+        }
+    }
+
+    private static long scheduleRefresh(
+        Vertx vertx,
+        DnsClient client,
+        DnsCache cache,
+        Map<DnsCache.Key, Future<ResolvedAddresses>> inflight,
+        long intervalSeconds
+    ) {
+        long intervalMillis = TimeUnit.SECONDS.toMillis(intervalSeconds);
+        // Refresh what expires before the next tick, plus one tick to leave time for slow DNS answers
+        long refreshWindowNanos = TimeUnit.MILLISECONDS.toNanos(2 * intervalMillis);
+        return vertx.setPeriodic(intervalMillis, timerId ->
+            cache.dueForRefresh(refreshWindowNanos).forEach(key -> resolveShared(client, cache, inflight, key, true))
+        );
+    }
 
+    /**
+     * Resolve the given host and store the result in the cache, or return the outstanding resolution of the same host if any.
+     *
+     * @param refresh <code>true</code> if the host is resolved again in the background rather than for a request
+     */
+    private static Future<ResolvedAddresses> resolveShared(
+        DnsClient client,
+        DnsCache cache,
+        Map<DnsCache.Key, Future<ResolvedAddresses>> inflight,
+        DnsCache.Key key,
+        boolean refresh
+    ) {
+        Promise<ResolvedAddresses> promise = Promise.promise();
+        Future<ResolvedAddresses> future = promise.future();
+        Future<ResolvedAddresses> pending = inflight.putIfAbsent(key, future);
+        if (pending != null) {
+            if (!refresh) {
+                METRICS.dnsCacheHit();
+            }
+            return pending;
+        }
+
+        long start = System.nanoTime();
+        resolve(client, key.lookupIpVersion(), key.host()).map(ResolvedAddresses::of).onComplete(result -> {
+            if (refresh) {
+                METRICS.dnsRefreshed(result.succeeded());
+            } else {
+                METRICS.dnsResolved(System.nanoTime() - start, result.succeeded());
+            }
+            if (cache.put(key.host(), key.lookupIpVersion(), result)) {
+                GENERATION.incrementAndGet();
+            }
+            inflight.remove(key, future);
+            if (result.succeeded()) {
+                promise.complete(result.result());
+            } else {
+                promise.fail(result.cause());
+            }
+        });
+        return future;
+    }
+
+    private static Future<List<String>> resolve(DnsClient client, LookupIpVersion lookupIpVersion, String host) {
         if (lookupIpVersion == LookupIpVersion.IPV6) {
-            client.resolveAAAA(host).onComplete(handler);
+            return client.resolveAAAA(host);
         } else if (lookupIpVersion == LookupIpVersion.IPV4) {
-            client.resolveA(host).onComplete(handler);
-        } else {
-            Future<List<String>> ipv4Future = client.resolveA(host);
-            Future<List<String>> ipv6Future = client.resolveAAAA(host);
-
-            Future.all(ipv4Future, ipv6Future)
-                .map(cf -> {
-                    List<String> all = new ArrayList<>();
-                    all.addAll(cf.resultAt(0)); // ipv4Future result
-                    all.addAll(cf.resultAt(1)); // ipv6Future result
-                    return all;
-                })
-                .onComplete(handler);
+            return client.resolveA(host);
         }
+        Future<List<String>> ipv4Future = client.resolveA(host);
+        Future<List<String>> ipv6Future = client.resolveAAAA(host);
+
+        return Future.all(ipv4Future, ipv6Future).map(cf -> {
+            List<String> all = new ArrayList<>();
+            all.addAll(cf.resultAt(0)); // ipv4Future result
+            all.addAll(cf.resultAt(1)); // ipv6Future result
+            return all;
+        });
     }
 }
@@ -0,0 +1,219 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.ipfiltering;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * MappedIpRangeTable is an {@link IpRangeTable} read from a binary file mapped in memory: opening it costs no parsing and no heap, and
+ * lookups read the ranges straight from the (off-heap) pages of the file, loaded by the OS as needed.
+ * <p>
+ * The file holds sorted, merged and non-overlapping ranges, in big-endian order:
+ * <pre>
+ * magic          4 bytes   "GIPR"
+ * version        2 bytes   1
+ * flags          2 bytes   0, reserved
+ * ipv4 count     4 bytes
+ * ipv6 count     4 bytes
+ * ipv4 ranges    ipv4 count x (first, last) as 4 bytes unsigned values
+ * ipv6 ranges    ipv6 count x (first high, first low, last high, last low) as 8 bytes unsigned values
+ * </pre>
+ * Such a file is created by {@link IpRangeFileConverter}. A mapped file must be replaced (e.g. moved over) rather than rewritten in place.
+ */
+public final class MappedIpRangeTable implements IpMatcher {
+
+    static final int MAGIC = 0x47495052; // "GIPR"
+    static final short VERSION = 1;
+    static final int HEADER_SIZE = 16;
+
+    private static final int IPV4_RANGE_SIZE = 8;
+    private static final int IPV6_RANGE_SIZE = 32;
+
+    private final ByteBuffer buffer;
+    private final int ipv4Count;
+    private final int ipv6Count;
+    private final int ipv6Offset;
+
+    private MappedIpRangeTable(ByteBuffer buffer, int ipv4Count, int ipv6Count) {
+        this.buffer = buffer;
+        this.ipv4Count = ipv4Count;
+        this.ipv6Count = ipv6Count;
+        this.ipv6Offset = HEADER_SIZE + ipv4Count * IPV4_RANGE_SIZE;
+    }
+
+    /**
+     * @return <code>true</code> if the given file starts as a binary range file
+     */
+    public static boolean isRangeFile(Path path) throws IOException {
+        try (InputStream in = Files.newInputStream(path)) {
+            final byte[] magic = in.readNBytes(4);
+            return magic.length == 4 && ByteBuffer.wrap(magic).getInt() == MAGIC;
+        }
+    }
+
+    /**
+     * Map the given binary range file in memory.
+     *
+     * @throws IOException if the file cannot be read, or is not a valid range file
+     */
+    public static MappedIpRangeTable open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+                throw new IOException("Invalid IP range file size " + size + ": " + path);
+            }
+            final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt(0) != MAGIC) {
+                throw new IOException("Not an IP range file: " + path);
+            }
+            if (buffer.getShort(4) != VERSION) {
+                throw new IOException("Unsupported IP range file version " + buffer.getShort(4) + ": " + path);
+            }
+            final int ipv4Count = buffer.getInt(8);
+            final int ipv6Count = buffer.getInt(12);
+            final long expectedSize = HEADER_SIZE + (long) ipv4Count * IPV4_RANGE_SIZE + (long) ipv6Count * IPV6_RANGE_SIZE;
+            if (ipv4Count < 0 || ipv6Count < 0 || expectedSize != size) {
+                throw new IOException("Truncated IP range file: " + path);
+            }
+            return new MappedIpRangeTable(buffer, ipv4Count, ipv6Count);
+        }
+    }
+
+    /**
+     * Write the given table as a binary range file. The file is written aside then moved to the given path, so that a file mapped by a
+     * running gateway is replaced rather than modified.
+     */
+    public static void write(IpRangeTable table, Path path) throws IOException {
+        final Path absolute = path.toAbsolutePath();
+        final Path temp = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+                final int[] ipv4Firsts = table.ipv4Firsts();
+                final int[] ipv4Lasts = table.ipv4Lasts();
+                final long[] ipv6Firsts = table.ipv6Firsts();
+                final long[] ipv6Lasts = table.ipv6Lasts();
+                out.writeInt(MAGIC);
+                out.writeShort(VERSION);
+                out.writeShort(0);
+                out.writeInt(ipv4Firsts.length);
+                out.writeInt(ipv6Firsts.length / 2);
+                for (int i = 0; i < ipv4Firsts.length; i++) {
+                    out.writeInt(ipv4Firsts[i]);
+                    out.writeInt(ipv4Lasts[i]);
+                }
+                for (int i = 0; i < ipv6Firsts.length; i += 2) {
+                    out.writeLong(ipv6Firsts[i]);
+                    out.writeLong(ipv6Firsts[i + 1]);
+                    out.writeLong(ipv6Lasts[i]);
+                    out.writeLong(ipv6Lasts[i + 1]);
+                }
+            }
+            Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public IpRange match(IpAddress address) {
+        if (address.isIpv6()) {
+            final int index = indexOfIpv6(address.high(), address.low());
+            if (index == -1) {
+                return null;
+            }
+            final int offset = ipv6Offset + index * IPV6_RANGE_SIZE;
+            return IpRange.between(
+                true,
+                buffer.getLong(offset),
+                buffer.getLong(offset + 8),
+                buffer.getLong(offset + 16),
+                buffer.getLong(offset + 24)
+            );
+        }
+        final int index = indexOfIpv4((int) address.low());
+        if (index == -1) {
+            return null;
+        }
+        final int offset = HEADER_SIZE + index * IPV4_RANGE_SIZE;
+        final long first = Integer.toUnsignedLong(buffer.getInt(offset));
+        return IpRange.between(false, 0, first, 0, Integer.toUnsignedLong(buffer.getInt(offset + 4)));
+    }
+
+    @Override
+    public boolean matches(IpAddress address) {
+        if (address == null) {
+            return false;
+        }
+        return (address.isIpv6() ? indexOfIpv6(address.high(), address.low()) : indexOfIpv4((int) address.low())) != -1;
+    }
+
+    /**
+     * @return the index of the range holding the address, or <code>-1</code> if there is none
+     */
+    private int indexOfIpv4(int address) {
+        // Search the last range starting before or at the address
+        int lowIndex = 0;
+        int highIndex = ipv4Count - 1;
+        int found = -1;
+        while (lowIndex <= highIndex) {
+            final int middle = (lowIndex + highIndex) >>> 1;
+            if (Integer.compareUnsigned(buffer.getInt(HEADER_SIZE + middle * IPV4_RANGE_SIZE), address) <= 0) {
+                found = middle;
+                lowIndex = middle + 1;
+            } else {
+                highIndex = middle - 1;
+            }
+        }
+        if (found == -1 || Integer.compareUnsigned(address, buffer.getInt(HEADER_SIZE + found * IPV4_RANGE_SIZE + 4)) > 0) {
+            return -1;
+        }
+        return found;
+    }
+
+    private int indexOfIpv6(long high, long low) {
+        int lowIndex = 0;
+        int highIndex = ipv6Count - 1;
+        int found = -1;
+        while (lowIndex <= highIndex) {
+            final int middle = (lowIndex + highIndex) >>> 1;
+            final int offset = ipv6Offset + middle * IPV6_RANGE_SIZE;
+            if (IpRange.compare(buffer.getLong(offset), buffer.getLong(offset + 8), high, low) <= 0) {
+                found = middle;
+                lowIndex = middle + 1;
+            } else {
+                highIndex = middle - 1;
+            }
+        }
+        if (found == -1) {
+            return -1;
+        }
+        final int offset = ipv6Offset + found * IPV6_RANGE_SIZE;
+        return IpRange.compare(high, low, buffer.getLong(offset + 16), buffer.getLong(offset + 24)) > 0 ? -1 : found;
+    }
+
+    public int size() {
+        return ipv4Count + ipv6Count;
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.ipfiltering;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * ResolvedAddresses is the outcome of the resolution of a host name. The addresses are kept in their numeric form in a hash set, so that
+ * checking a client IP is a single lookup whatever the textual representation returned by the DNS server (<code>::1</code> and
+ * <code>0:0:0:0:0:0:0:1</code> are the same address). Two resolutions are equal if they hold the same addresses.
+ */
+public final class ResolvedAddresses {
+
+    public static final ResolvedAddresses EMPTY = new ResolvedAddresses(List.of(), Set.of());
+
+    private final List<String> values;
+    private final Set<IpAddress> addresses;
+
+    private ResolvedAddresses(List<String> values, Set<IpAddress> addresses) {
+        this.values = values;
+        this.addresses = addresses;
+    }
+
+    /**
+     * @param values the addresses returned by the DNS server, values that are not IP literals are ignored
+     */
+    public static ResolvedAddresses of(List<String> values) {
+        if (values == null || values.isEmpty()) {
+            return EMPTY;
+        }
+        final Set<IpAddress> addresses = new HashSet<>(values.size() * 2);
+        for (String value : values) {
+            final IpAddress address = value != null ? IpAddress.parse(value) : null;
+            if (address != null) {
+                addresses.add(address);
+            }
+        }
+        return new ResolvedAddresses(Collections.unmodifiableList(values), addresses);
+    }
+
+    public boolean contains(IpAddress address) {
+        return address != null && addresses.contains(address);
+    }
+
+    public boolean containsAny(Collection<IpAddress> candidates) {
+        for (IpAddress candidate : candidates) {
+            if (contains(candidate)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the addresses as returned by the DNS server
+     */
+    public List<String> values() {
+        return values;
+    }
+
+    public int size() {
+        return addresses.size();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof ResolvedAddresses other && addresses.equals(other.addresses));
+    }
+
+    @Override
+    public int hashCode() {
+        return addresses.hashCode();
+    }
+}
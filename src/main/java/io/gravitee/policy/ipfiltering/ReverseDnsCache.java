@@ -0,0 +1,99 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.ipfiltering;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.vertx.core.AsyncResult;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * ReverseDnsCache keeps, for a limited time, the host name of a client IP once verified by a reverse (PTR) lookup followed by a forward
+ * confirmation. Client IPs without a verified host name are cached as well, so that they do not issue DNS queries for every request.
+ * <p>
+ * The cache is bounded the same way as the {@link DnsCache}: once full, the least recently used entries are evicted first. Like it,
+ * it remembers the last outcome of each address past its expiry.
+ */
+public final class ReverseDnsCache {
+
+    public static final ReverseDnsCache DISABLED = new ReverseDnsCache(0, 0, System::nanoTime);
+
+    private final Cache<IpAddress, Entry> entries;
+    private final Cache<IpAddress, AsyncResult<String>> outcomes;
+    private final long ttlNanos;
+    private final int maxEntries;
+    private final LongSupplier clock;
+
+    public ReverseDnsCache(long ttlSeconds, int maxEntries) {
+        this(ttlSeconds, maxEntries, System::nanoTime);
+    }
+
+    ReverseDnsCache(long ttlSeconds, int maxEntries, LongSupplier clock) {
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+        this.entries = CacheBuilder.newBuilder()
+            .maximumSize(Math.max(0, maxEntries))
+            .expireAfterWrite(Math.max(0, ttlSeconds), TimeUnit.SECONDS)
+            .ticker(DnsCache.ticker(clock))
+            .build();
+        this.outcomes = CacheBuilder.newBuilder().maximumSize(Math.max(0, maxEntries)).build();
+    }
+
+    /**
+     * @return the cached, still valid, host name of the given address (with a <code>null</code> result if it has no verified host name)
+     * or <code>null</code> if there is none
+     */
+    public AsyncResult<String> get(IpAddress address) {
+        if (maxEntries == 0) {
+            return null;
+        }
+        final Entry entry = entries.getIfPresent(address);
+        if (entry == null || entry.expiresAt - clock.getAsLong() <= 0) {
+            return null;
+        }
+        return entry.result;
+    }
+
+    /**
+     * @param result the verified host name of the given address, with a <code>null</code> result if it has none
+     * @return <code>true</code> if the host name differs from the last one of this address, see
+     * {@link DnsCache#put(String, LookupIpVersion, AsyncResult)}
+     */
+    public boolean put(IpAddress address, AsyncResult<String> result) {
+        if (maxEntries == 0 || ttlNanos <= 0) {
+            return true;
+        }
+        entries.put(address, new Entry(result, clock.getAsLong() + ttlNanos));
+        final AsyncResult<String> last = outcomes.asMap().put(address, result);
+        return last != null && !sameOutcome(last, result);
+    }
+
+    private static boolean sameOutcome(AsyncResult<String> previous, AsyncResult<String> result) {
+        if (previous.succeeded() != result.succeeded()) {
+            return false;
+        }
+        return result.failed() || Objects.equals(previous.result(), result.result());
+    }
+
+    public int size() {
+        return (int) entries.size();
+    }
+
+    private record Entry(AsyncResult<String> result, long expiresAt) {}
+}
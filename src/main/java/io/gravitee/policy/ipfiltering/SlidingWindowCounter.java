@@ -0,0 +1,65 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.ipfiltering;
+
+/**
+ * SlidingWindowCounter estimates the number of events of the last window with two fixed windows: the count of the current window
+ * plus the count of the previous one weighted by the share of it still covered by the sliding window. It costs two counters whatever
+ * the rate of events, at the price of assuming the events of the previous window were evenly spread.
+ */
+public final class SlidingWindowCounter {
+
+    private final long windowNanos;
+
+    private long window;
+    private long current;
+    private long previous;
+
+    /**
+     * @param windowNanos The length of the window
+     * @param nowNanos The current time, in {@link System#nanoTime()}
+     */
+    public SlidingWindowCounter(long windowNanos, long nowNanos) {
+        this.windowNanos = windowNanos;
+        this.window = Math.floorDiv(nowNanos, windowNanos);
+    }
+
+    /**
+     * Count an event.
+     *
+     * @param nowNanos The current time, in {@link System#nanoTime()}
+     * @return the estimated number of events during the last window, this one included
+     */
+    public synchronized double increment(long nowNanos) {
+        roll(nowNanos);
+        current++;
+        return estimate(nowNanos);
+    }
+
+    private void roll(long nowNanos) {
+        final long now = Math.floorDiv(nowNanos, windowNanos);
+        if (now > window) {
+            previous = now == window + 1 ? current : 0;
+            current = 0;
+            window = now;
+        }
+    }
+
+    private double estimate(long nowNanos) {
+        final double previousShare = 1 - (double) Math.floorMod(nowNanos, windowNanos) / windowNanos;
+        return current + previous * previousShare;
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.ipfiltering;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+
+public class AutoBlocklistTest {
+
+    private final AtomicLong currentTimeMillis = new AtomicLong(1_000_000);
+
+    @Test
+    public void shouldBanClientIpDeniedTooOften() {
+        AutoBlocklist blocklist = blocklist(3, null);
+
+        assertFalse(blocklist.denied(ips("10.0.0.1")));
+        assertFalse(blocklist.denied(ips("10.0.0.1")));
+        assertFalse(blocklist.isBanned(IpAddress.parse("10.0.0.1")));
+        assertTrue(blocklist.denied(ips("10.0.0.1")));
+
+        assertTrue(blocklist.isBanned(IpAddress.parse("10.0.0.1")));
+        assertFalse(blocklist.isBanned(IpAddress.parse("10.0.0.2")));
+    }
+
+    @Test
+    public void shouldNotBanClientIpDeniedLessOftenThanTheWindow() {
+        AutoBlocklist blocklist = blocklist(3, null);
+
+        blocklist.denied(ips("10.0.0.1"));
+        blocklist.denied(ips("10.0.0.1"));
+        currentTimeMillis.addAndGet(TimeUnit.SECONDS.toMillis(150));
+
+        assertFalse(blocklist.denied(ips("10.0.0.1")));
+        assertFalse(blocklist.isBanned(IpAddress.parse("10.0.0.1")));
+    }
+
+    @Test
+    public void shouldLiftBanOnceExpired() {
+        AutoBlocklist blocklist = blocklist(1, null);
+
+        assertTrue(blocklist.denied(ips("10.0.0.1")));
+        currentTimeMillis.addAndGet(TimeUnit.SECONDS.toMillis(599));
+        assertTrue(blocklist.isBanned(IpAddress.parse("10.0.0.1")));
+
+        currentTimeMillis.addAndGet(TimeUnit.SECONDS.toMillis(1));
+        assertFalse(blocklist.isBanned(IpAddress.parse("10.0.0.1")));
+    }
+
+    @Test
+    public void shouldBanEachAddressWhateverTheOtherAddressesOfTheList() {
+        AutoBlocklist blocklist = blocklist(3, null);
+
+        assertFalse(blocklist.denied(ips("198.51.100.1", "10.0.0.1")));
+        assertFalse(blocklist.denied(ips("198.51.100.2", "10.0.0.1")));
+        assertTrue(blocklist.denied(ips("junk", "10.0.0.1")));
+
+        String ips = "198.51.100.3, 10.0.0.1";
+        assertEquals(ips.indexOf("10.0.0.1"), blocklist.indexOfBanned(ips));
+        assertEquals(-1, blocklist.indexOfBanned("198.51.100.1, 10.0.0.2"));
+        assertEquals(-1, blocklist.indexOfBanned(null));
+    }
+
+    @Test
+    public void shouldMatchBannedAddressWhateverItsNotation() {
+        AutoBlocklist blocklist = blocklist(1, null);
+
+        assertTrue(blocklist.denied(ips("2001:db8::1")));
+
+        assertEquals(0, blocklist.indexOfBanned("2001:0db8:0:0::0001"));
+    }
+
+    @Test
+    public void shouldShareBansThroughStore() {
+        InMemoryBanStore store = new InMemoryBanStore();
+        BanReplica node1 = new BanReplica(store, 100);
+        BanReplica node2 = new BanReplica(store, 100);
+        AutoBlocklist blocklist1 = blocklist(1, node1);
+        AutoBlocklist blocklist2 = blocklist(1, node2);
+
+        assertTrue(blocklist1.denied(ips("10.0.0.1")));
+        assertTrue(blocklist1.isBanned(IpAddress.parse("10.0.0.1")));
+        assertFalse(blocklist2.isBanned(IpAddress.parse("10.0.0.1")));
+
+        node1.sync(currentTimeMillis.get());
+        node2.sync(currentTimeMillis.get());
+        assertTrue(blocklist2.isBanned(IpAddress.parse("10.0.0.1")));
+    }
+
+    @Test
+    public void shouldNotEnforceSharedBansWithoutThreshold() {
+        InMemoryBanStore store = new InMemoryBanStore();
+        store.ban(List.of(new BanStore.BanEntry("10.0.0.2", currentTimeMillis.get() + 60_000)));
+        BanReplica replica = new BanReplica(store, 100);
+        replica.sync(currentTimeMillis.get());
+        AutoBlocklist blocklist = blocklist(0, replica);
+
+        assertFalse(blocklist.denied(ips("10.0.0.1")));
+        assertFalse(blocklist.isBanned(IpAddress.parse("10.0.0.1")));
+        assertFalse(blocklist.isBanned(IpAddress.parse("10.0.0.2")));
+        assertEquals(-1, blocklist.indexOfBanned("10.0.0.2"));
+    }
+
+    @Test
+    public void shouldNotShareBansUnlessEnabled() {
+        InMemoryBanStore store = new InMemoryBanStore();
+        store.ban(List.of(new BanStore.BanEntry("10.0.0.2", currentTimeMillis.get() + 60_000)));
+        BanReplica replica = new BanReplica(store, 100);
+        replica.sync(currentTimeMillis.get());
+        AutoBlocklist blocklist = new AutoBlocklist(
+            1,
+            60,
+            600,
+            100,
+            false,
+            replica,
+            () -> TimeUnit.MILLISECONDS.toNanos(currentTimeMillis.get()),
+            currentTimeMillis::get
+        );
+
+        assertTrue(blocklist.denied(ips("10.0.0.1")));
+        assertTrue(blocklist.isBanned(IpAddress.parse("10.0.0.1")));
+        assertFalse(replica.isBanned(IpAddress.parse("10.0.0.1"), currentTimeMillis.get()));
+        assertFalse(blocklist.isBanned(IpAddress.parse("10.0.0.2")));
+    }
+
+    @Test
+    public void shouldNotBanByDefault() {
+        AutoBlocklist blocklist = AutoBlocklist.of(new IPFilteringPolicyConfiguration());
+
+        assertFalse(blocklist.denied(ips("10.0.0.1")));
+        assertFalse(blocklist.denied(ips("10.0.0.1")));
+        assertEquals(-1, blocklist.indexOfBanned("10.0.0.1"));
+    }
+
+    private static List<IpAddress> ips(String... values) {
+        return Arrays.stream(values).map(IpAddress::parse).toList();
+    }
+
+    private AutoBlocklist blocklist(int threshold, BanReplica replica) {
+        return new AutoBlocklist(
+            threshold,
+            60,
+            600,
+            100,
+            replica != null,
+            replica,
+            () -> TimeUnit.MILLISECONDS.toNanos(currentTimeMillis.get()),
+            currentTimeMillis::get
+        );
+    }
+}
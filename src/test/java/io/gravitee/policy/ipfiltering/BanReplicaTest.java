@@ -0,0 +1,207 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.ipfiltering;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+import io.gravitee.gateway.api.ExecutionContext;
+import io.gravitee.node.api.configuration.Configuration;
+import io.vertx.core.Vertx;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BanReplicaTest {
+
+    private static final long NOW = 1_000_000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldBanOnNodeBeforeSynchronization() {
+        BanReplica replica = new BanReplica(new InMemoryBanStore(), 100);
+
+        replica.ban(IpAddress.parse("10.0.0.1"), NOW + 1_000);
+
+        assertThat(replica.isBanned(IpAddress.parse("10.0.0.1"), NOW)).isTrue();
+        assertThat(replica.isBanned(IpAddress.parse("10.0.0.1"), NOW + 1_000)).isFalse();
+        assertThat(replica.isBanned(IpAddress.parse("10.0.0.2"), NOW)).isFalse();
+    }
+
+    @Test
+    public void shouldReplicateBansOfOtherNodes() {
+        InMemoryBanStore store = new InMemoryBanStore();
+        BanReplica node1 = new BanReplica(store, 100);
+        BanReplica node2 = new BanReplica(store, 100);
+        node1.ban(IpAddress.parse("10.0.0.1"), NOW + 1_000);
+
+        assertThat(node2.sync(NOW)).isFalse();
+        node1.sync(NOW);
+
+        assertThat(node2.sync(NOW)).isTrue();
+        assertThat(node2.isBanned(IpAddress.parse("10.0.0.1"), NOW)).isTrue();
+        assertThat(node2.sync(NOW)).isFalse();
+    }
+
+    @Test
+    public void shouldLiftBanAndDropExpiredBans() {
+        InMemoryBanStore store = new InMemoryBanStore();
+        BanReplica replica = new BanReplica(store, 100);
+        store.ban(List.of(new BanStore.BanEntry("10.0.0.1", NOW + 1_000), new BanStore.BanEntry("10.0.0.2", NOW + 10_000)));
+        replica.sync(NOW);
+
+        store.ban(List.of(new BanStore.BanEntry("10.0.0.2", 0)));
+        replica.sync(NOW + 1_000);
+
+        assertThat(replica.isBanned(IpAddress.parse("10.0.0.2"), NOW + 1_000)).isFalse();
+        assertThat(replica.size()).isZero();
+    }
+
+    @Test
+    public void shouldIgnoreEntriesWhichAreNotIpAddresses() {
+        InMemoryBanStore store = new InMemoryBanStore();
+        BanReplica replica = new BanReplica(store, 100);
+        store.ban(List.of(new BanStore.BanEntry("not-an-ip", NOW + 1_000), new BanStore.BanEntry("10.0.0.1", NOW + 1_000)));
+
+        replica.sync(NOW);
+
+        assertThat(replica.isBanned(IpAddress.parse("10.0.0.1"), NOW)).isTrue();
+        assertThat(replica.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldRetryBansNotWritten() {
+        InMemoryBanStore store = new InMemoryBanStore();
+        BanStore failing = new BanStore() {
+            private boolean failed;
+
+            @Override
+            public void ban(Collection<BanEntry> entries) throws IOException {
+                if (!failed && !entries.isEmpty()) {
+                    failed = true;
+                    throw new IOException("Store unavailable");
+                }
+                store.ban(entries);
+            }
+
+            @Override
+            public BanDelta changesSince(long version) {
+                return store.changesSince(version);
+            }
+        };
+        BanReplica replica = new BanReplica(failing, 100);
+        replica.ban(IpAddress.parse("10.0.0.1"), NOW + 1_000);
+
+        replica.sync(NOW);
+        assertThat(store.changesSince(0).entries()).isEmpty();
+
+        replica.sync(NOW);
+        assertThat(store.changesSince(0).entries()).containsExactly(new BanStore.BanEntry("10.0.0.1", NOW + 1_000));
+    }
+
+    @Test
+    public void shouldApplyChangesReadInParts() {
+        InMemoryBanStore store = new InMemoryBanStore();
+        store.ban(List.of(new BanStore.BanEntry("10.0.0.1", NOW + 1_000), new BanStore.BanEntry("10.0.0.2", NOW + 1_000)));
+        BanStore oneAtATime = new BanStore() {
+            @Override
+            public void ban(Collection<BanEntry> entries) {
+                store.ban(entries);
+            }
+
+            @Override
+            public BanDelta changesSince(long version) {
+                final List<BanEntry> entries = store.changesSince(version).entries();
+                return entries.isEmpty() ? new BanDelta(version, entries) : new BanDelta(version + 1, entries.subList(0, 1));
+            }
+        };
+        BanReplica replica = new BanReplica(oneAtATime, 100);
+
+        assertThat(replica.sync(NOW)).isTrue();
+
+        assertThat(replica.isBanned(IpAddress.parse("10.0.0.1"), NOW)).isTrue();
+        assertThat(replica.isBanned(IpAddress.parse("10.0.0.2"), NOW)).isTrue();
+    }
+
+    @Test
+    public void shouldShareReplicaOfFile() {
+        String path = folder.getRoot().toPath().resolve("bans.txt").toString();
+        BanReplica replica = BanReplica.ofFile(path, 100, FileBanStore.DEFAULT_MAX_SIZE);
+
+        assertThat(BanReplica.ofFile(path, 100, FileBanStore.DEFAULT_MAX_SIZE)).isSameAs(replica);
+    }
+
+    @Test
+    public void shouldUseStoreConfiguredOnGateway() {
+        String path = folder.getRoot().toPath().resolve("gateway-bans.txt").toString();
+        ExecutionContext ctx = mock(ExecutionContext.class);
+        Configuration configuration = mock(Configuration.class);
+        when(ctx.getComponent(Configuration.class)).thenReturn(configuration);
+
+        assertThat(BanReplica.of(ctx)).isNull();
+
+        when(configuration.getProperty("policy.ip-filtering.ban-store.file", String.class)).thenReturn(path);
+        assertThat(BanReplica.of(ctx)).isSameAs(BanReplica.ofFile(path, 100, FileBanStore.DEFAULT_MAX_SIZE));
+    }
+
+    @Test
+    public void shouldNotHoldMoreBansThanMaxEntries() {
+        BanReplica replica = new BanReplica(new InMemoryBanStore(), 2);
+
+        replica.ban(IpAddress.parse("10.0.0.1"), NOW + 1_000);
+        replica.ban(IpAddress.parse("10.0.0.2"), NOW + 1_000);
+        replica.ban(IpAddress.parse("10.0.0.3"), NOW + 1_000);
+
+        assertThat(replica.size()).isEqualTo(2);
+        assertThat(replica.isBanned(IpAddress.parse("10.0.0.3"), NOW)).isTrue();
+    }
+
+    @Test
+    public void shouldWatchStoreOnce() {
+        ExecutionContext ctx = mock(ExecutionContext.class);
+        Vertx vertx = mock(Vertx.class);
+        when(ctx.getComponent(Vertx.class)).thenReturn(vertx);
+        when(ctx.getComponent(Configuration.class)).thenReturn(mock(Configuration.class));
+        BanReplica replica = new BanReplica(new InMemoryBanStore(), 100);
+
+        replica.watch(ctx);
+        replica.watch(ctx);
+
+        verify(vertx, times(1)).setPeriodic(eq(5_000L), any());
+    }
+
+    @Test
+    public void shouldCancelTimerAndForgetReplicasOnClose() {
+        ExecutionContext ctx = mock(ExecutionContext.class);
+        Vertx vertx = mock(Vertx.class);
+        when(ctx.getComponent(Vertx.class)).thenReturn(vertx);
+        when(ctx.getComponent(Configuration.class)).thenReturn(mock(Configuration.class));
+        when(vertx.setPeriodic(eq(5_000L), any())).thenReturn(42L);
+        String path = folder.getRoot().toPath().resolve("bans.txt").toString();
+        BanReplica replica = BanReplica.ofFile(path, 100, FileBanStore.DEFAULT_MAX_SIZE);
+        replica.watch(ctx);
+
+        BanReplica.closeAll();
+
+        verify(vertx).cancelTimer(42L);
+        assertThat(BanReplica.ofFile(path, 100, FileBanStore.DEFAULT_MAX_SIZE)).isNotSameAs(replica);
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.ipfiltering;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+
+public class DecisionCacheTest {
+
+    private final AtomicLong dnsGeneration = new AtomicLong();
+
+    private final IpFilterList blackList = IpFilterList.compile(List.of("10.0.0.1"), false, IpMatchStrategy.TRIE);
+
+    private final IpFilterList whiteList = IpFilterList.compile(List.of("gravitee.io"), false, IpMatchStrategy.TRIE);
+
+    @Test
+    public void shouldCacheDecisionPerClientIp() {
+        DecisionCache cache = new DecisionCache(10, 60, dnsGeneration::get);
+
+        cache.put(new DecisionCache.Key(blackList, whiteList, "10.0.0.1"), DecisionCache.Decision.blacklisted("10.0.0.1", List.of()));
+
+        assertEquals(
+            DecisionCache.Decision.blacklisted("10.0.0.1", List.of()),
+            cache.get(new DecisionCache.Key(blackList, whiteList, "10.0.0.1"))
+        );
+        assertNull(cache.get(new DecisionCache.Key(blackList, whiteList, "10.0.0.2")));
+    }
+
+    @Test
+    public void shouldNotReuseDecisionMadeWithAnotherList() {
+        DecisionCache cache = new DecisionCache(10, 60, dnsGeneration::get);
+        IpFilterList recompiled = IpFilterList.compile(List.of("10.0.0.1"), false, IpMatchStrategy.TRIE);
+
+        cache.put(new DecisionCache.Key(blackList, whiteList, "10.0.0.1"), DecisionCache.Decision.blacklisted("10.0.0.1", List.of()));
+
+        assertNull(cache.get(new DecisionCache.Key(recompiled, whiteList, "10.0.0.1")));
+    }
+
+    @Test
+    public void shouldNotReuseHostDecisionOnceResolutionsChange() {
+        DecisionCache cache = new DecisionCache(10, 60, dnsGeneration::get);
+        DecisionCache.Key key = new DecisionCache.Key(blackList, whiteList, "10.0.0.2");
+
+        cache.put(key, DecisionCache.Decision.allowed(cache.dnsGeneration()));
+        assertNotNull(cache.get(key));
+
+        dnsGeneration.incrementAndGet();
+        assertNull(cache.get(key));
+    }
+
+    @Test
+    public void shouldReuseIpDecisionWhenResolutionsChange() {
+        DecisionCache cache = new DecisionCache(10, 60, dnsGeneration::get);
+        DecisionCache.Key key = new DecisionCache.Key(blackList, IpFilterList.EMPTY, "10.0.0.2");
+
+        cache.put(key, DecisionCache.Decision.ALLOWED);
+        dnsGeneration.incrementAndGet();
+
+        assertSame(DecisionCache.Decision.ALLOWED, cache.get(key));
+    }
+
+    @Test
+    public void shouldBeDisabledByDefault() {
+        assertNull(DecisionCache.of(new IPFilteringPolicyConfiguration()));
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.ipfiltering;
+
+import static org.junit.Assert.*;
+
+import io.vertx.core.Future;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+
+public class DnsCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    public void shouldCacheResolutionUntilTtlExpires() {
+        DnsCache cache = new DnsCache(60, 5, 10, now::get);
+
+        cache.put("gravitee.io", LookupIpVersion.ALL, Future.succeededFuture(ResolvedAddresses.of(List.of("192.168.0.1"))));
+
+        assertEquals(List.of("192.168.0.1"), cache.get("gravitee.io", LookupIpVersion.ALL).result().values());
+        assertNull(cache.get("gravitee.io", LookupIpVersion.IPV4));
+        now.addAndGet(TimeUnit.SECONDS.toNanos(60));
+        assertNull(cache.get("gravitee.io", LookupIpVersion.ALL));
+    }
+
+    @Test
+    public void shouldCacheFailureForNegativeTtl() {
+        DnsCache cache = new DnsCache(60, 5, 10, now::get);
+
+        cache.put("gravitee.io", LookupIpVersion.ALL, Future.failedFuture("NXDOMAIN"));
+
+        assertTrue(cache.get("gravitee.io", LookupIpVersion.ALL).failed());
+        now.addAndGet(TimeUnit.SECONDS.toNanos(5));
+        assertNull(cache.get("gravitee.io", LookupIpVersion.ALL));
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedEntriesWhenFull() {
+        DnsCache cache = new DnsCache(60, 5, 2, now::get);
+
+        cache.put("a.gravitee.io", LookupIpVersion.ALL, Future.succeededFuture(ResolvedAddresses.of(List.of())));
+        cache.put("b.gravitee.io", LookupIpVersion.ALL, Future.succeededFuture(ResolvedAddresses.of(List.of())));
+        cache.get("a.gravitee.io", LookupIpVersion.ALL);
+        cache.put("c.gravitee.io", LookupIpVersion.ALL, Future.succeededFuture(ResolvedAddresses.of(List.of())));
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get("a.gravitee.io", LookupIpVersion.ALL));
+        assertNull(cache.get("b.gravitee.io", LookupIpVersion.ALL));
+        assertNotNull(cache.get("c.gravitee.io", LookupIpVersion.ALL));
+    }
+
+    @Test
+    public void shouldNotCacheWhenDisabled() {
+        DnsCache.DISABLED.put("gravitee.io", LookupIpVersion.ALL, Future.succeededFuture(ResolvedAddresses.of(List.of("192.168.0.1"))));
+
+        assertNull(DnsCache.DISABLED.get("gravitee.io", LookupIpVersion.ALL));
+    }
+
+    @Test
+    public void shouldServeStaleResolutionInRefreshAheadMode() {
+        DnsCache cache = new DnsCache(60, 5, 10, true, now::get);
+
+        cache.put("gravitee.io", LookupIpVersion.ALL, Future.succeededFuture(ResolvedAddresses.of(List.of("192.168.0.1"))));
+        now.addAndGet(TimeUnit.SECONDS.toNanos(90));
+        assertEquals(List.of("192.168.0.1"), cache.get("gravitee.io", LookupIpVersion.ALL).result().values());
+
+        cache.put("gravitee.io", LookupIpVersion.ALL, Future.failedFuture("SERVFAIL"));
+        assertTrue(cache.get("gravitee.io", LookupIpVersion.ALL).succeeded());
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(30));
+        assertNull(cache.get("gravitee.io", LookupIpVersion.ALL));
+    }
+
+    @Test
+    public void shouldOnlyRefreshReadEntriesAboutToExpire() {
+        DnsCache cache = new DnsCache(60, 5, 10, true, now::get);
+        long window = TimeUnit.SECONDS.toNanos(20);
+
+        cache.put("a.gravitee.io", LookupIpVersion.ALL, Future.succeededFuture(ResolvedAddresses.of(List.of("192.168.0.1"))));
+        cache.put("b.gravitee.io", LookupIpVersion.ALL, Future.succeededFuture(ResolvedAddresses.of(List.of("192.168.0.2"))));
+        cache.get("a.gravitee.io", LookupIpVersion.ALL);
+
+        assertTrue(cache.dueForRefresh(window).isEmpty());
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(45));
+        assertEquals(List.of(new DnsCache.Key("a.gravitee.io", LookupIpVersion.ALL)), cache.dueForRefresh(window));
+        assertTrue(cache.dueForRefresh(window).isEmpty());
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(80));
+        cache.dueForRefresh(window);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void shouldNotReportEntriesToRefreshWithoutRefreshAhead() {
+        DnsCache cache = new DnsCache(60, 5, 10, now::get);
+
+        cache.put("gravitee.io", LookupIpVersion.ALL, Future.succeededFuture(ResolvedAddresses.of(List.of("192.168.0.1"))));
+        cache.get("gravitee.io", LookupIpVersion.ALL);
+        now.addAndGet(TimeUnit.SECONDS.toNanos(50));
+
+        assertTrue(cache.dueForRefresh(TimeUnit.SECONDS.toNanos(20)).isEmpty());
+    }
+
+    @Test
+    public void shouldReportChangedResolutions() {
+        DnsCache cache = new DnsCache(60, 5, 10, now::get);
+
+        assertFalse(cache.put("gravitee.io", LookupIpVersion.ALL, Future.succeededFuture(ResolvedAddresses.of(List.of("192.168.0.1")))));
+        assertFalse(cache.put("gravitee.io", LookupIpVersion.ALL, Future.succeededFuture(ResolvedAddresses.of(List.of("192.168.0.1")))));
+        assertTrue(cache.put("gravitee.io", LookupIpVersion.ALL, Future.succeededFuture(ResolvedAddresses.of(List.of("192.168.0.2")))));
+        assertTrue(cache.put("gravitee.io", LookupIpVersion.ALL, Future.failedFuture("NXDOMAIN")));
+        assertFalse(cache.put("gravitee.io", LookupIpVersion.ALL, Future.failedFuture("SERVFAIL")));
+        assertTrue(DnsCache.DISABLED.put("gravitee.io", LookupIpVersion.ALL, Future.failedFuture("NXDOMAIN")));
+    }
+
+    @Test
+    public void shouldReportChangedResolutionsOnceExpired() {
+        DnsCache cache = new DnsCache(60, 5, 10, now::get);
+
+        assertFalse(cache.put("gravitee.io", LookupIpVersion.ALL, Future.succeededFuture(ResolvedAddresses.of(List.of("192.168.0.1")))));
+        now.addAndGet(TimeUnit.SECONDS.toNanos(60));
+        assertNull(cache.get("gravitee.io", LookupIpVersion.ALL));
+        assertFalse(cache.put("gravitee.io", LookupIpVersion.ALL, Future.succeededFuture(ResolvedAddresses.of(List.of("192.168.0.1")))));
+        now.addAndGet(TimeUnit.SECONDS.toNanos(60));
+        assertTrue(cache.put("gravitee.io", LookupIpVersion.ALL, Future.succeededFuture(ResolvedAddresses.of(List.of("192.168.0.2")))));
+    }
+}
@@ -107,4 +107,92 @@ public class ExtractIpsTest {
         verify(mockRequest, never()).headers();
         verify(mockRequest, never()).remoteAddress();
     }
+
+    @Test
+    public void shouldReturnFirstUntrustedForwardedIp() {
+        when(mockConfiguration.getClientIpSource()).thenReturn(ClientIpSource.X_FORWARDED_FOR);
+        when(mockConfiguration.getTrustedProxies()).thenReturn(List.of("10.0.0.0/8"));
+        HttpHeaders httpHeaders = HttpHeaders.create().set(HttpHeaderNames.X_FORWARDED_FOR, "192.168.0.9, 192.168.0.5, 10.0.0.2");
+        when(executionContext.request()).thenReturn(mockRequest);
+        when(mockRequest.remoteAddress()).thenReturn("10.0.0.1");
+        when(mockRequest.headers()).thenReturn(httpHeaders);
+        IPFilteringPolicy policy = new IPFilteringPolicy(mockConfiguration);
+
+        List<String> ips = policy.extractIps(executionContext);
+
+        assertEquals(List.of("192.168.0.5"), ips);
+    }
+
+    @Test
+    public void shouldReturnForwardedIpAfterTrustedHops() {
+        when(mockConfiguration.getClientIpSource()).thenReturn(ClientIpSource.X_FORWARDED_FOR);
+        when(mockConfiguration.getTrustedHops()).thenReturn(2);
+        HttpHeaders httpHeaders = HttpHeaders.create().set(HttpHeaderNames.X_FORWARDED_FOR, "192.168.0.9, 192.168.0.5, 172.16.0.2");
+        when(executionContext.request()).thenReturn(mockRequest);
+        when(mockRequest.remoteAddress()).thenReturn("172.16.0.1");
+        when(mockRequest.headers()).thenReturn(httpHeaders);
+        IPFilteringPolicy policy = new IPFilteringPolicy(mockConfiguration);
+
+        List<String> ips = policy.extractIps(executionContext);
+
+        assertEquals(List.of("192.168.0.5"), ips);
+    }
+
+    @Test
+    public void shouldReturnLeftmostForwardedIpWhenAllHopsAreTrusted() {
+        when(mockConfiguration.getClientIpSource()).thenReturn(ClientIpSource.X_FORWARDED_FOR);
+        when(mockConfiguration.getTrustedProxies()).thenReturn(List.of("10.0.0.0/8"));
+        HttpHeaders httpHeaders = HttpHeaders.create().set(HttpHeaderNames.X_FORWARDED_FOR, "10.0.0.3, 10.0.0.2");
+        when(executionContext.request()).thenReturn(mockRequest);
+        when(mockRequest.remoteAddress()).thenReturn("10.0.0.1");
+        when(mockRequest.headers()).thenReturn(httpHeaders);
+        IPFilteringPolicy policy = new IPFilteringPolicy(mockConfiguration);
+
+        List<String> ips = policy.extractIps(executionContext);
+
+        assertEquals(List.of("10.0.0.3"), ips);
+    }
+
+    @Test
+    public void shouldIgnoreForwardedIpsFromUntrustedRemoteAddress() {
+        when(mockConfiguration.getClientIpSource()).thenReturn(ClientIpSource.X_FORWARDED_FOR);
+        when(mockConfiguration.getTrustedProxies()).thenReturn(List.of("10.0.0.0/8"));
+        when(executionContext.request()).thenReturn(mockRequest);
+        when(mockRequest.remoteAddress()).thenReturn("192.168.0.9");
+        IPFilteringPolicy policy = new IPFilteringPolicy(mockConfiguration);
+
+        List<String> ips = policy.extractIps(executionContext);
+
+        assertEquals(List.of("192.168.0.9"), ips);
+        verify(mockRequest, never()).headers();
+    }
+
+    @Test
+    public void shouldReturnFirstUntrustedForwardedNode() {
+        when(mockConfiguration.getClientIpSource()).thenReturn(ClientIpSource.FORWARDED);
+        when(mockConfiguration.getTrustedProxies()).thenReturn(List.of("10.0.0.0/8"));
+        HttpHeaders httpHeaders = HttpHeaders.create()
+            .set(ForwardedHeader.NAME, "for=192.168.0.9, for=\"192.168.0.5:4711\";proto=https, for=10.0.0.2");
+        when(executionContext.request()).thenReturn(mockRequest);
+        when(mockRequest.remoteAddress()).thenReturn("10.0.0.1");
+        when(mockRequest.headers()).thenReturn(httpHeaders);
+        IPFilteringPolicy policy = new IPFilteringPolicy(mockConfiguration);
+
+        List<String> ips = policy.extractIps(executionContext);
+
+        assertEquals(List.of("192.168.0.5"), ips);
+    }
+
+    @Test
+    public void shouldReturnRemoteAddressWithProxyProtocol() {
+        when(mockConfiguration.getClientIpSource()).thenReturn(ClientIpSource.PROXY_PROTOCOL);
+        when(executionContext.request()).thenReturn(mockRequest);
+        when(mockRequest.remoteAddress()).thenReturn("192.168.0.9");
+        IPFilteringPolicy policy = new IPFilteringPolicy(mockConfiguration);
+
+        List<String> ips = policy.extractIps(executionContext);
+
+        assertEquals(List.of("192.168.0.9"), ips);
+        verify(mockRequest, never()).headers();
+    }
 }
@@ -0,0 +1,148 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.ipfiltering;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FileBanStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldReadNothingFromMissingFile() throws IOException {
+        FileBanStore store = new FileBanStore(folder.getRoot().toPath().resolve("bans.txt"));
+
+        assertThat(store.changesSince(0).entries()).isEmpty();
+    }
+
+    @Test
+    public void shouldOnlyReadLinesAppendedSinceVersion() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("bans.txt");
+        FileBanStore store = new FileBanStore(path);
+        store.ban(List.of(new BanStore.BanEntry("10.0.0.1", 2_000), new BanStore.BanEntry("10.0.0.2", 3_000)));
+        BanStore.BanDelta delta = store.changesSince(0);
+
+        Files.writeString(path, "# lifted by an operator\n500 10.0.0.1 # false positive\n4000 10.0.0.3\n", StandardOpenOption.APPEND);
+
+        assertThat(delta.entries()).containsExactly(new BanStore.BanEntry("10.0.0.1", 2_000), new BanStore.BanEntry("10.0.0.2", 3_000));
+        assertThat(store.changesSince(delta.version()).entries()).containsExactly(
+            new BanStore.BanEntry("10.0.0.1", 500),
+            new BanStore.BanEntry("10.0.0.3", 4_000)
+        );
+    }
+
+    @Test
+    public void shouldReadIncompleteLineOnceComplete() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("bans.txt");
+        FileBanStore store = new FileBanStore(path);
+        Files.writeString(path, "1000 10.0.0.1\n2000 10.0");
+
+        BanStore.BanDelta delta = store.changesSince(0);
+        Files.writeString(path, ".0.2\n", StandardOpenOption.APPEND);
+
+        assertThat(delta.entries()).containsExactly(new BanStore.BanEntry("10.0.0.1", 1_000));
+        assertThat(store.changesSince(delta.version()).entries()).containsExactly(new BanStore.BanEntry("10.0.0.2", 2_000));
+    }
+
+    @Test
+    public void shouldReadAgainFromStartOnceShrunk() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("bans.txt");
+        FileBanStore store = new FileBanStore(path);
+        Files.writeString(path, "1000 10.0.0.1\n2000 10.0.0.2\n");
+        BanStore.BanDelta delta = store.changesSince(0);
+
+        Files.writeString(path, "3000 10.0.0.3\n");
+
+        assertThat(store.changesSince(delta.version()).entries()).containsExactly(new BanStore.BanEntry("10.0.0.3", 3_000));
+    }
+
+    @Test
+    public void shouldReadLargeDeltaInParts() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("bans.txt");
+        FileBanStore store = new FileBanStore(path);
+        StringBuilder lines = new StringBuilder();
+        int count = 0;
+        while (lines.length() <= 2 * FileBanStore.MAX_DELTA_SIZE) {
+            lines.append(1_000 + count).append(" 10.0.").append(count / 256 % 256).append('.').append(count % 256).append('\n');
+            count++;
+        }
+        Files.writeString(path, lines);
+
+        List<BanStore.BanEntry> entries = new ArrayList<>();
+        long version = 0;
+        for (BanStore.BanDelta delta = store.changesSince(0); delta.version() > version; delta = store.changesSince(version)) {
+            assertThat(delta.version() - version).isLessThanOrEqualTo(FileBanStore.MAX_DELTA_SIZE);
+            entries.addAll(delta.entries());
+            version = delta.version();
+        }
+
+        assertThat(version).isEqualTo(lines.length());
+        assertThat(entries).hasSize(count);
+        assertThat(entries.get(count - 1).expiresAt()).isEqualTo(1_000 + count - 1);
+    }
+
+    @Test
+    public void shouldSkipLinesLongerThanAChunk() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("bans.txt");
+        FileBanStore store = new FileBanStore(path);
+        Files.writeString(path, "1000 10.0.0.1\n# " + "x".repeat(100_000) + "\n2000 10.0.0.2\n");
+
+        assertThat(store.changesSince(0).entries()).containsExactly(
+            new BanStore.BanEntry("10.0.0.1", 1_000),
+            new BanStore.BanEntry("10.0.0.2", 2_000)
+        );
+    }
+
+    @Test
+    public void shouldCompactOnceLargerThanMaxSize() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("bans.txt");
+        FileBanStore store = new FileBanStore(path, 100);
+        long now = System.currentTimeMillis();
+        Files.writeString(path, "1000 10.0.0.1\n" + (now + 60_000) + " 10.0.0.2\n" + (now + 60_000) + " 10.0.0.3\n1000 10.0.0.3\n");
+        BanStore.BanDelta delta = store.changesSince(0);
+
+        store.ban(List.of(new BanStore.BanEntry("10.0.0.4", now + 60_000), new BanStore.BanEntry("2001:db8::1", now + 60_000)));
+
+        assertThat(Files.readAllLines(path)).containsExactly(
+            (now + 60_000) + " 10.0.0.2",
+            (now + 60_000) + " 10.0.0.4",
+            (now + 60_000) + " 2001:db8::1"
+        );
+
+        // Not compacted again until twice as large
+        store.ban(List.of(new BanStore.BanEntry("2001:0db8::1", 1_000)));
+        assertThat(Files.readAllLines(path)).hasSize(4);
+
+        store.compact(now);
+        assertThat(Files.readAllLines(path)).containsExactly((now + 60_000) + " 10.0.0.2", (now + 60_000) + " 10.0.0.4");
+        // The replaced file is read again from the start
+        assertThat(store.changesSince(delta.version()).entries()).containsExactly(
+            new BanStore.BanEntry("10.0.0.2", now + 60_000),
+            new BanStore.BanEntry("10.0.0.4", now + 60_000)
+        );
+    }
+}
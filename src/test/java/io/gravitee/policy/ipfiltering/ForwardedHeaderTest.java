@@ -0,0 +1,62 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.ipfiltering;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import org.junit.Test;
+
+public class ForwardedHeaderTest {
+
+    private static final IpMatcher TRUSTED = IpPrefixTrie.compile(List.of(IpRange.parse("10.0.0.0/8", true)));
+
+    private static final String VALUE = "for=192.0.2.60;proto=http;by=203.0.113.43, For=\"[2001:db8:cafe::17]:4711\", for=10.0.0.2:8080";
+
+    @Test
+    public void shouldReturnRightmostUntrustedNode() {
+        assertEquals("2001:db8:cafe::17", ForwardedHeader.clientIp(VALUE, 0, TRUSTED));
+    }
+
+    @Test
+    public void shouldSkipHops() {
+        assertEquals("2001:db8:cafe::17", ForwardedHeader.clientIp(VALUE, 1, TRUSTED));
+        assertEquals("192.0.2.60", ForwardedHeader.clientIp(VALUE, 2, TRUSTED));
+        assertEquals("192.0.2.60", ForwardedHeader.clientIp(VALUE, 5, TRUSTED));
+    }
+
+    @Test
+    public void shouldIgnorePort() {
+        assertEquals("10.0.0.2", ForwardedHeader.clientIp(VALUE, 0, IpMatcher.NONE));
+    }
+
+    @Test
+    public void shouldReturnUnbracketedIpv6Node() {
+        assertEquals("2001:db8::1", ForwardedHeader.clientIp("for=2001:db8::1", 0, TRUSTED));
+    }
+
+    @Test
+    public void shouldIgnoreSeparatorsInQuotedValues() {
+        assertEquals("_hidden", ForwardedHeader.clientIp("for=_hidden;by=\"a,b\", for=\"10.0.0.5\"", 0, TRUSTED));
+    }
+
+    @Test
+    public void shouldReturnNullWithoutForParameter() {
+        assertNull(ForwardedHeader.clientIp("proto=https;by=203.0.113.43", 0, TRUSTED));
+        assertNull(ForwardedHeader.clientIp("for=192.0.2.60, proto=http", 0, TRUSTED));
+        assertNull(ForwardedHeader.clientIp("", 0, TRUSTED));
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.ipfiltering;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class HostFilteringDecisionTest {
+
+    private final List<String> outcomes = new ArrayList<>();
+
+    private HostFilteringDecision decision(int blacklistedHosts, int whitelistedHosts, boolean whitelisted) {
+        final Runnable deny = () -> outcomes.add("deny");
+        return new HostFilteringDecision(blacklistedHosts, whitelistedHosts, whitelisted, () -> outcomes.add("allow"), deny, deny);
+    }
+
+    @Test
+    public void shouldDenyOnFirstBlacklistedHostHit() {
+        HostFilteringDecision decision = decision(3, 0, true);
+
+        decision.blacklistedHostChecked(true);
+
+        assertThat(decision.isDecided()).isTrue();
+        assertThat(outcomes).containsExactly("deny");
+
+        decision.blacklistedHostChecked(false);
+        decision.blacklistedHostChecked(false);
+        assertThat(outcomes).containsExactly("deny");
+    }
+
+    @Test
+    public void shouldAllowOnceAllBlacklistedHostsAreChecked() {
+        HostFilteringDecision decision = decision(2, 0, true);
+
+        decision.blacklistedHostChecked(false);
+        assertThat(outcomes).isEmpty();
+
+        decision.blacklistedHostChecked(false);
+        assertThat(outcomes).containsExactly("allow");
+    }
+
+    @Test
+    public void shouldAllowOnFirstWhitelistedHostMatch() {
+        HostFilteringDecision decision = decision(0, 3, false);
+
+        decision.whitelistedHostChecked(false);
+        decision.whitelistedHostChecked(true);
+
+        assertThat(outcomes).containsExactly("allow");
+    }
+
+    @Test
+    public void shouldDenyWhenNoWhitelistedHostMatches() {
+        HostFilteringDecision decision = decision(0, 2, false);
+
+        decision.whitelistedHostChecked(false);
+        assertThat(outcomes).isEmpty();
+
+        decision.whitelistedHostChecked(false);
+        assertThat(outcomes).containsExactly("deny");
+    }
+
+    @Test
+    public void shouldWaitForBlacklistedHostsBeforeAllowingWhitelistedHost() {
+        HostFilteringDecision decision = decision(1, 2, false);
+
+        decision.whitelistedHostChecked(true);
+        assertThat(outcomes).isEmpty();
+
+        decision.whitelistedHostChecked(false);
+        assertThat(outcomes).isEmpty();
+
+        decision.blacklistedHostChecked(false);
+        assertThat(outcomes).containsExactly("allow");
+    }
+
+    @Test
+    public void shouldDenyWithoutWaitingForBlacklistedHostsWhenNoWhitelistedHostMatches() {
+        HostFilteringDecision decision = decision(1, 1, false);
+
+        decision.whitelistedHostChecked(false);
+
+        assertThat(outcomes).containsExactly("deny");
+    }
+
+    @Test
+    public void shouldReportWhichListDenies() {
+        HostFilteringDecision blacklisted = new HostFilteringDecision(
+            1,
+            1,
+            false,
+            () -> outcomes.add("allow"),
+            () -> outcomes.add("blacklisted"),
+            () -> outcomes.add("not whitelisted")
+        );
+        HostFilteringDecision notWhitelisted = new HostFilteringDecision(
+            0,
+            1,
+            false,
+            () -> outcomes.add("allow"),
+            () -> outcomes.add("blacklisted"),
+            () -> outcomes.add("not whitelisted")
+        );
+
+        blacklisted.blacklistedHostChecked(true);
+        notWhitelisted.whitelistedHostChecked(false);
+
+        assertThat(outcomes).containsExactly("blacklisted", "not whitelisted");
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.ipfiltering;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import org.junit.Test;
+
+public class HostPatternSetTest {
+
+    @Test
+    public void shouldMatchExactNames() {
+        HostPatternSet patterns = HostPatternSet.compile(List.of("gravitee.io", "API.Example.com."));
+
+        assertThat(patterns.matches("gravitee.io")).isTrue();
+        assertThat(patterns.matches("GRAVITEE.IO.")).isTrue();
+        assertThat(patterns.matches("api.example.com")).isTrue();
+        assertThat(patterns.matches("www.gravitee.io")).isFalse();
+        assertThat(patterns.matches(null)).isFalse();
+    }
+
+    @Test
+    public void shouldMatchSubDomainsOfWildcardEntries() {
+        HostPatternSet patterns = HostPatternSet.compile(List.of("*.crawler.example.com"));
+
+        assertThat(patterns.matches("bot-1.crawler.example.com")).isTrue();
+        assertThat(patterns.matches("a.b.crawler.example.com")).isTrue();
+        assertThat(patterns.matches("crawler.example.com")).isFalse();
+        assertThat(patterns.matches("crawler.example.com.evil.io")).isFalse();
+        assertThat(patterns.matches("notcrawler.example.com")).isFalse();
+    }
+
+    @Test
+    public void shouldBeEmptyWithoutEntries() {
+        assertThat(HostPatternSet.compile(List.of())).isSameAs(HostPatternSet.EMPTY);
+        assertThat(HostPatternSet.EMPTY.isEmpty()).isTrue();
+        assertThat(HostPatternSet.EMPTY.matches("gravitee.io")).isFalse();
+    }
+}
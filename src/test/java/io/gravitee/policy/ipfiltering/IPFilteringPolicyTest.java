@@ -160,7 +160,7 @@ public class IPFilteringPolicyTest {
     @Test
     public void blacklist_filtered_hosts_process_should_fail_because_dns_client_lookup_failed()
         throws NoSuchFieldException, IllegalAccessException {
-        Field dnsClientField = LazyDnsClient.class.getDeclaredField("dnsClient");
+        Field dnsClientField = LazyDnsClient.class.getDeclaredField("state");
         dnsClientField.setAccessible(true);
         dnsClientField.set(null, null);
         when(mockConfiguration.isUseCustomIPAddress()).thenReturn(false);
@@ -192,7 +192,7 @@ public class IPFilteringPolicyTest {
     @Test
     public void whitelist_filtered_hosts_process_should_fail_because_dns_client_lookup_failed()
         throws NoSuchFieldException, IllegalAccessException {
-        Field dnsClientField = LazyDnsClient.class.getDeclaredField("dnsClient");
+        Field dnsClientField = LazyDnsClient.class.getDeclaredField("state");
         dnsClientField.setAccessible(true);
         dnsClientField.set(null, null);
         when(mockConfiguration.isUseCustomIPAddress()).thenReturn(false);
@@ -410,7 +410,7 @@ public class IPFilteringPolicyTest {
 
     @Test
     public void shouldResolveHostnameInWhitelistAndAllowRequest() throws NoSuchFieldException, IllegalAccessException {
-        Field dnsClientField = LazyDnsClient.class.getDeclaredField("dnsClient");
+        Field dnsClientField = LazyDnsClient.class.getDeclaredField("state");
         dnsClientField.setAccessible(true);
         dnsClientField.set(null, null);
         when(mockConfiguration.isUseCustomIPAddress()).thenReturn(false);
@@ -440,7 +440,7 @@ public class IPFilteringPolicyTest {
 
     @Test
     public void shouldNotAllowRequestWhenHostnameNotResolved() throws NoSuchFieldException, IllegalAccessException {
-        Field dnsClientField = LazyDnsClient.class.getDeclaredField("dnsClient");
+        Field dnsClientField = LazyDnsClient.class.getDeclaredField("state");
         dnsClientField.setAccessible(true);
         dnsClientField.set(null, null);
         when(mockConfiguration.isUseCustomIPAddress()).thenReturn(false);
@@ -475,7 +475,7 @@ public class IPFilteringPolicyTest {
 
     @Test
     public void shouldFailWhenHostResolvesToBlacklistedIp() throws NoSuchFieldException, IllegalAccessException {
-        Field dnsClientField = LazyDnsClient.class.getDeclaredField("dnsClient");
+        Field dnsClientField = LazyDnsClient.class.getDeclaredField("state");
         dnsClientField.setAccessible(true);
         dnsClientField.set(null, null);
         when(mockConfiguration.isUseCustomIPAddress()).thenReturn(false);
@@ -575,6 +575,31 @@ public class IPFilteringPolicyTest {
         assertFalse(res);
     }
 
+    @Test
+    public void shouldNotResolveWhitelistedHostsWhenIpIsWhitelisted() {
+        when(mockConfiguration.getWhitelistIps()).thenReturn(List.of("192.168.0.1", "example.com"));
+        when(mockRequest.remoteAddress()).thenReturn("192.168.0.1");
+        IPFilteringPolicy policy = new IPFilteringPolicy(mockConfiguration);
+
+        policy.onRequest(executionContext, mockPolicychain);
+
+        verify(mockPolicychain, times(1)).doNext(any(Request.class), any(Response.class));
+        verify(executionContext, never()).getComponent(Vertx.class);
+    }
+
+    @Test
+    public void shouldNotResolveWhitelistedHostsWhenIpIsBlacklisted() {
+        when(mockConfiguration.getWhitelistIps()).thenReturn(List.of("example.com"));
+        when(mockConfiguration.getBlacklistIps()).thenReturn(List.of("192.168.0.0/24"));
+        when(mockRequest.remoteAddress()).thenReturn("192.168.0.1");
+        IPFilteringPolicy policy = new IPFilteringPolicy(mockConfiguration);
+
+        policy.onRequest(executionContext, mockPolicychain);
+
+        verify(mockPolicychain, times(1)).failWith(any(PolicyResult.class));
+        verify(executionContext, never()).getComponent(Vertx.class);
+    }
+
     @Test
     public void shouldAllowRequestWhenIpInWhitelistOrHostnameResolvesToWhitelist() {
         when(mockConfiguration.isUseCustomIPAddress()).thenReturn(false);
@@ -585,11 +610,11 @@ public class IPFilteringPolicyTest {
         IPFilteringPolicy policy = new IPFilteringPolicy(mockConfiguration);
         try (MockedStatic<LazyDnsClient> lazyDnsMock = mockStatic(LazyDnsClient.class)) {
             lazyDnsMock
-                .when(() -> LazyDnsClient.lookup(any(), any(), eq("example.com"), any()))
+                .when(() -> LazyDnsClient.lookupAddresses(any(), any(), eq("example.com"), any()))
                 .thenAnswer(invocation -> {
                     var handler = invocation.getArgument(3, io.vertx.core.Handler.class);
                     // Simulate successful DNS lookup
-                    handler.handle(Future.succeededFuture(List.of("93.184.216.34")));
+                    handler.handle(Future.succeededFuture(ResolvedAddresses.of(List.of("93.184.216.34"))));
                     return null;
                 });
             policy.onRequest(executionContext, mockPolicychain);
@@ -610,10 +635,126 @@ public class IPFilteringPolicyTest {
 
         try (MockedStatic<LazyDnsClient> lazyDnsMock = mockStatic(LazyDnsClient.class)) {
             lazyDnsMock
-                .when(() -> LazyDnsClient.lookup(any(), any(), eq("badhost.com"), any()))
+                .when(() -> LazyDnsClient.lookupAddresses(any(), any(), eq("badhost.com"), any()))
+                .thenAnswer(invocation -> {
+                    var handler = invocation.getArgument(3, io.vertx.core.Handler.class);
+                    handler.handle(Future.succeededFuture(ResolvedAddresses.of(List.of("93.184.216.34"))));
+                    return null;
+                });
+            policy.onRequest(executionContext, mockPolicychain);
+        }
+        verify(mockPolicychain, times(1)).failWith(any());
+        verify(mockPolicychain, never()).doNext(any(), any());
+    }
+
+    @Test
+    public void shouldAllowRequestWhenAnyWhitelistedHostMatches() {
+        when(mockConfiguration.getWhitelistIps()).thenReturn(List.of("example.com", "other.com"));
+        when(mockRequest.remoteAddress()).thenReturn("93.184.216.34");
+        when(mockConfiguration.getLookupIpVersion()).thenReturn(LookupIpVersion.ALL);
+        IPFilteringPolicy policy = new IPFilteringPolicy(mockConfiguration);
+
+        try (MockedStatic<LazyDnsClient> lazyDnsMock = mockStatic(LazyDnsClient.class)) {
+            lazyDnsMock
+                .when(() -> LazyDnsClient.lookupAddresses(any(), any(), eq("example.com"), any()))
+                .thenAnswer(invocation -> {
+                    var handler = invocation.getArgument(3, io.vertx.core.Handler.class);
+                    handler.handle(Future.succeededFuture(ResolvedAddresses.of(List.of("10.0.0.1"))));
+                    return null;
+                });
+            lazyDnsMock
+                .when(() -> LazyDnsClient.lookupAddresses(any(), any(), eq("other.com"), any()))
+                .thenAnswer(invocation -> {
+                    var handler = invocation.getArgument(3, io.vertx.core.Handler.class);
+                    handler.handle(Future.succeededFuture(ResolvedAddresses.of(List.of("93.184.216.34"))));
+                    return null;
+                });
+            policy.onRequest(executionContext, mockPolicychain);
+        }
+        verify(mockPolicychain, never()).failWith(any());
+        verify(mockPolicychain, times(1)).doNext(any(), any());
+    }
+
+    @Test
+    public void shouldNotResolveRemainingBlacklistedHostsOnceDenied() {
+        when(mockConfiguration.getBlacklistIps()).thenReturn(List.of("badhost.com", "other.com"));
+        when(mockRequest.remoteAddress()).thenReturn("93.184.216.34");
+        when(mockConfiguration.getLookupIpVersion()).thenReturn(LookupIpVersion.ALL);
+        IPFilteringPolicy policy = new IPFilteringPolicy(mockConfiguration);
+
+        try (MockedStatic<LazyDnsClient> lazyDnsMock = mockStatic(LazyDnsClient.class)) {
+            lazyDnsMock
+                .when(() -> LazyDnsClient.lookupAddresses(any(), any(), eq("badhost.com"), any()))
                 .thenAnswer(invocation -> {
                     var handler = invocation.getArgument(3, io.vertx.core.Handler.class);
-                    handler.handle(Future.succeededFuture(List.of("93.184.216.34")));
+                    handler.handle(Future.succeededFuture(ResolvedAddresses.of(List.of("93.184.216.34"))));
+                    return null;
+                });
+            policy.onRequest(executionContext, mockPolicychain);
+
+            lazyDnsMock.verify(() -> LazyDnsClient.lookupAddresses(any(), any(), eq("other.com"), any()), never());
+        }
+        verify(mockPolicychain, times(1)).failWith(any());
+        verify(mockPolicychain, never()).doNext(any(), any());
+    }
+
+    @Test
+    public void shouldFailWhenVerifiedHostMatchesBlacklistedDomainInReverseMode() {
+        when(mockConfiguration.getBlacklistIps()).thenReturn(List.of("*.crawler.example.com"));
+        when(mockConfiguration.getHostMatchingMode()).thenReturn(HostMatchingMode.REVERSE);
+        when(mockRequest.remoteAddress()).thenReturn("203.0.113.10");
+        IPFilteringPolicy policy = new IPFilteringPolicy(mockConfiguration);
+
+        try (MockedStatic<LazyDnsClient> lazyDnsMock = mockStatic(LazyDnsClient.class)) {
+            lazyDnsMock
+                .when(() -> LazyDnsClient.reverseLookup(any(), eq(IpAddress.parse("203.0.113.10")), any()))
+                .thenAnswer(invocation -> {
+                    var handler = invocation.getArgument(2, io.vertx.core.Handler.class);
+                    handler.handle(Future.succeededFuture("bot-7.crawler.example.com"));
+                    return null;
+                });
+            policy.onRequest(executionContext, mockPolicychain);
+
+            lazyDnsMock.verify(() -> LazyDnsClient.lookupAddresses(any(), any(), any(), any()), never());
+        }
+        verify(mockPolicychain, times(1)).failWith(any());
+        verify(mockPolicychain, never()).doNext(any(), any());
+    }
+
+    @Test
+    public void shouldAllowWhenVerifiedHostMatchesWhitelistInReverseMode() {
+        when(mockConfiguration.getWhitelistIps()).thenReturn(List.of("10.0.0.0/8", "*.googlebot.com"));
+        when(mockConfiguration.getHostMatchingMode()).thenReturn(HostMatchingMode.REVERSE);
+        when(mockRequest.remoteAddress()).thenReturn("66.249.66.1");
+        IPFilteringPolicy policy = new IPFilteringPolicy(mockConfiguration);
+
+        try (MockedStatic<LazyDnsClient> lazyDnsMock = mockStatic(LazyDnsClient.class)) {
+            lazyDnsMock
+                .when(() -> LazyDnsClient.reverseLookup(any(), eq(IpAddress.parse("66.249.66.1")), any()))
+                .thenAnswer(invocation -> {
+                    var handler = invocation.getArgument(2, io.vertx.core.Handler.class);
+                    handler.handle(Future.succeededFuture("crawl-66-249-66-1.googlebot.com"));
+                    return null;
+                });
+            policy.onRequest(executionContext, mockPolicychain);
+        }
+        verify(mockPolicychain, never()).failWith(any());
+        verify(mockPolicychain, times(1)).doNext(any(), any());
+    }
+
+    @Test
+    public void shouldFailWhenClientHasNoVerifiedHostInReverseMode() {
+        when(mockConfiguration.getWhitelistIps()).thenReturn(List.of("*.googlebot.com"));
+        when(mockConfiguration.getHostMatchingMode()).thenReturn(HostMatchingMode.REVERSE);
+        when(mockRequest.remoteAddress()).thenReturn("203.0.113.10");
+        IPFilteringPolicy policy = new IPFilteringPolicy(mockConfiguration);
+
+        try (MockedStatic<LazyDnsClient> lazyDnsMock = mockStatic(LazyDnsClient.class)) {
+            lazyDnsMock
+                .when(() -> LazyDnsClient.reverseLookup(any(), any(), any()))
+                .thenAnswer(invocation -> {
+                    var handler = invocation.getArgument(2, io.vertx.core.Handler.class);
+                    handler.handle(Future.succeededFuture());
                     return null;
                 });
             policy.onRequest(executionContext, mockPolicychain);
@@ -621,4 +762,245 @@ public class IPFilteringPolicyTest {
         verify(mockPolicychain, times(1)).failWith(any());
         verify(mockPolicychain, never()).doNext(any(), any());
     }
+
+    @Test
+    public void shouldAllowWhenBlacklistedHostsCannotMatchInReverseMode() {
+        when(mockConfiguration.getBlacklistIps()).thenReturn(List.of("."));
+        when(mockConfiguration.getHostMatchingMode()).thenReturn(HostMatchingMode.REVERSE);
+        when(mockRequest.remoteAddress()).thenReturn("203.0.113.10");
+        IPFilteringPolicy policy = new IPFilteringPolicy(mockConfiguration);
+
+        try (MockedStatic<LazyDnsClient> lazyDnsMock = mockStatic(LazyDnsClient.class)) {
+            policy.onRequest(executionContext, mockPolicychain);
+
+            lazyDnsMock.verify(() -> LazyDnsClient.reverseLookup(any(), any(), any()), never());
+        }
+        verify(mockPolicychain, never()).failWith(any());
+        verify(mockPolicychain, times(1)).doNext(any(), any());
+    }
+
+    @Test
+    public void shouldReuseCachedDecision() {
+        when(mockConfiguration.getWhitelistIps()).thenReturn(List.of("example.com"));
+        when(mockConfiguration.getDecisionCacheMaxEntries()).thenReturn(100);
+        when(mockConfiguration.getDecisionCacheTtl()).thenReturn(60L);
+        when(mockRequest.remoteAddress()).thenReturn("93.184.216.34");
+        when(mockConfiguration.getLookupIpVersion()).thenReturn(LookupIpVersion.ALL);
+        IPFilteringPolicy policy = new IPFilteringPolicy(mockConfiguration);
+
+        try (MockedStatic<LazyDnsClient> lazyDnsMock = mockStatic(LazyDnsClient.class)) {
+            lazyDnsMock
+                .when(() -> LazyDnsClient.lookupAddresses(any(), any(), eq("example.com"), any()))
+                .thenAnswer(invocation -> {
+                    var handler = invocation.getArgument(3, io.vertx.core.Handler.class);
+                    handler.handle(Future.succeededFuture(ResolvedAddresses.of(List.of("93.184.216.34"))));
+                    return null;
+                });
+            policy.onRequest(executionContext, mockPolicychain);
+            policy.onRequest(executionContext, mockPolicychain);
+
+            lazyDnsMock.verify(() -> LazyDnsClient.lookupAddresses(any(), any(), eq("example.com"), any()), times(1));
+        }
+        verify(mockPolicychain, never()).failWith(any());
+        verify(mockPolicychain, times(2)).doNext(any(), any());
+    }
+
+    @Test
+    public void shouldNotReuseCachedDecisionOnceResolutionsChange() {
+        when(mockConfiguration.getWhitelistIps()).thenReturn(List.of("example.com"));
+        when(mockConfiguration.getDecisionCacheMaxEntries()).thenReturn(100);
+        when(mockConfiguration.getDecisionCacheTtl()).thenReturn(60L);
+        when(mockRequest.remoteAddress()).thenReturn("93.184.216.34");
+        when(mockConfiguration.getLookupIpVersion()).thenReturn(LookupIpVersion.ALL);
+        IPFilteringPolicy policy = new IPFilteringPolicy(mockConfiguration);
+
+        try (MockedStatic<LazyDnsClient> lazyDnsMock = mockStatic(LazyDnsClient.class)) {
+            lazyDnsMock.when(LazyDnsClient::generation).thenReturn(0L, 1L);
+            lazyDnsMock
+                .when(() -> LazyDnsClient.lookupAddresses(any(), any(), eq("example.com"), any()))
+                .thenAnswer(invocation -> {
+                    var handler = invocation.getArgument(3, io.vertx.core.Handler.class);
+                    handler.handle(Future.succeededFuture(ResolvedAddresses.of(List.of("93.184.216.34"))));
+                    return null;
+                });
+            policy.onRequest(executionContext, mockPolicychain);
+            policy.onRequest(executionContext, mockPolicychain);
+
+            lazyDnsMock.verify(() -> LazyDnsClient.lookupAddresses(any(), any(), eq("example.com"), any()), times(2));
+        }
+        verify(mockPolicychain, times(2)).doNext(any(), any());
+    }
+
+    @Test
+    public void shouldReportMatchedCidr() {
+        when(mockConfiguration.getBlacklistIps()).thenReturn(List.of("10.0.0.1", "192.168.0.0/24"));
+        when(mockRequest.remoteAddress()).thenReturn("192.168.0.4");
+        IPFilteringPolicy policy = new IPFilteringPolicy(mockConfiguration);
+
+        policy.onRequest(executionContext, mockPolicychain);
+
+        verify(executionContext).setAttribute(IPFilteringPolicy.ATTR_DECISION, "BLACKLISTED");
+        verify(executionContext).setAttribute(IPFilteringPolicy.ATTR_SOURCE, IPFilteringPolicy.SOURCE_CIDR);
+        verify(executionContext).setAttribute(IPFilteringPolicy.ATTR_RULE, "192.168.0.0/24");
+        verify(executionContext).setAttribute(eq(IPFilteringPolicy.ATTR_EVALUATION_TIME), any(Long.class));
+    }
+
+    @Test
+    public void shouldReportMatchedIp() {
+        when(mockConfiguration.getWhitelistIps()).thenReturn(List.of("10.0.0.0/8", "192.168.0.4"));
+        when(mockRequest.remoteAddress()).thenReturn("192.168.0.4");
+        IPFilteringPolicy policy = new IPFilteringPolicy(mockConfiguration);
+
+        policy.onRequest(executionContext, mockPolicychain);
+
+        verify(executionContext).setAttribute(IPFilteringPolicy.ATTR_DECISION, "ALLOWED");
+        verify(executionContext).setAttribute(IPFilteringPolicy.ATTR_SOURCE, IPFilteringPolicy.SOURCE_IP);
+        verify(executionContext).setAttribute(IPFilteringPolicy.ATTR_RULE, "192.168.0.4");
+    }
+
+    @Test
+    public void shouldReportNoRuleWhenNotWhitelisted() {
+        when(mockConfiguration.getWhitelistIps()).thenReturn(List.of("10.0.0.0/8"));
+        when(mockRequest.remoteAddress()).thenReturn("192.168.0.4");
+        IPFilteringPolicy policy = new IPFilteringPolicy(mockConfiguration);
+
+        policy.onRequest(executionContext, mockPolicychain);
+
+        verify(executionContext).setAttribute(IPFilteringPolicy.ATTR_DECISION, "NOT_WHITELISTED");
+        verify(executionContext, never()).setAttribute(eq(IPFilteringPolicy.ATTR_SOURCE), any());
+        verify(executionContext, never()).setAttribute(eq(IPFilteringPolicy.ATTR_RULE), any());
+    }
+
+    @Test
+    public void shouldReportMatchedHost() {
+        when(mockConfiguration.getBlacklistIps()).thenReturn(List.of("example.com"));
+        when(mockRequest.remoteAddress()).thenReturn("93.184.216.34");
+        when(mockConfiguration.getLookupIpVersion()).thenReturn(LookupIpVersion.ALL);
+        IPFilteringPolicy policy = new IPFilteringPolicy(mockConfiguration);
+
+        try (MockedStatic<LazyDnsClient> lazyDnsMock = mockStatic(LazyDnsClient.class)) {
+            lazyDnsMock
+                .when(() -> LazyDnsClient.lookupAddresses(any(), any(), eq("example.com"), any()))
+                .thenAnswer(invocation -> {
+                    var handler = invocation.getArgument(3, io.vertx.core.Handler.class);
+                    handler.handle(Future.succeededFuture(ResolvedAddresses.of(List.of("93.184.216.34"))));
+                    return null;
+                });
+            policy.onRequest(executionContext, mockPolicychain);
+        }
+        verify(executionContext).setAttribute(IPFilteringPolicy.ATTR_DECISION, "BLACKLISTED");
+        verify(executionContext).setAttribute(IPFilteringPolicy.ATTR_SOURCE, IPFilteringPolicy.SOURCE_HOST);
+        verify(executionContext).setAttribute(IPFilteringPolicy.ATTR_RULE, "example.com");
+    }
+
+    @Test
+    public void shouldReportCachedDecision() {
+        when(mockConfiguration.getBlacklistIps()).thenReturn(List.of("192.168.0.4"));
+        when(mockConfiguration.getDecisionCacheMaxEntries()).thenReturn(100);
+        when(mockConfiguration.getDecisionCacheTtl()).thenReturn(60L);
+        when(mockRequest.remoteAddress()).thenReturn("192.168.0.4");
+        IPFilteringPolicy policy = new IPFilteringPolicy(mockConfiguration);
+
+        policy.onRequest(executionContext, mockPolicychain);
+        policy.onRequest(executionContext, mockPolicychain);
+
+        verify(executionContext, times(2)).setAttribute(IPFilteringPolicy.ATTR_DECISION, "BLACKLISTED");
+        verify(executionContext).setAttribute(IPFilteringPolicy.ATTR_SOURCE, IPFilteringPolicy.SOURCE_IP);
+        verify(executionContext).setAttribute(IPFilteringPolicy.ATTR_SOURCE, IPFilteringPolicy.SOURCE_CACHE);
+    }
+
+    @Test
+    public void shouldBanClientIpDeniedTooOften() {
+        when(mockConfiguration.getBlacklistIps()).thenReturn(List.of("192.168.0.4"));
+        when(mockConfiguration.getAutoBanThreshold()).thenReturn(2);
+        when(mockConfiguration.getAutoBanWindow()).thenReturn(60L);
+        when(mockConfiguration.getAutoBanDuration()).thenReturn(600L);
+        when(mockConfiguration.getAutoBanMaxEntries()).thenReturn(100);
+        when(mockRequest.remoteAddress()).thenReturn("192.168.0.4");
+        IPFilteringPolicy policy = new IPFilteringPolicy(mockConfiguration);
+
+        policy.onRequest(executionContext, mockPolicychain);
+        policy.onRequest(executionContext, mockPolicychain);
+        policy.onRequest(executionContext, mockPolicychain);
+
+        verify(mockPolicychain, times(3)).failWith(any(PolicyResult.class));
+        verify(executionContext, times(2)).setAttribute(IPFilteringPolicy.ATTR_DECISION, "BLACKLISTED");
+        verify(executionContext).setAttribute(IPFilteringPolicy.ATTR_DECISION, "BANNED");
+        verify(executionContext).setAttribute(IPFilteringPolicy.ATTR_SOURCE, IPFilteringPolicy.SOURCE_AUTO_BAN);
+    }
+
+    @Test
+    public void shouldBanClientIpWhateverTheOtherForwardedIps() {
+        when(mockConfiguration.getBlacklistIps()).thenReturn(List.of("192.168.0.4"));
+        when(mockConfiguration.isMatchAllFromXForwardedFor()).thenReturn(true);
+        when(mockConfiguration.getAutoBanThreshold()).thenReturn(2);
+        when(mockConfiguration.getAutoBanWindow()).thenReturn(60L);
+        when(mockConfiguration.getAutoBanDuration()).thenReturn(600L);
+        when(mockConfiguration.getAutoBanMaxEntries()).thenReturn(100);
+        when(mockRequest.headers()).thenReturn(
+            HttpHeaders.create().set(HttpHeaderNames.X_FORWARDED_FOR, "10.0.0.1, 192.168.0.4"),
+            HttpHeaders.create().set(HttpHeaderNames.X_FORWARDED_FOR, "10.0.0.2, 192.168.0.4"),
+            HttpHeaders.create().set(HttpHeaderNames.X_FORWARDED_FOR, "10.0.0.3, 192.168.0.4")
+        );
+        IPFilteringPolicy policy = new IPFilteringPolicy(mockConfiguration);
+
+        policy.onRequest(executionContext, mockPolicychain);
+        policy.onRequest(executionContext, mockPolicychain);
+        policy.onRequest(executionContext, mockPolicychain);
+
+        verify(executionContext, times(2)).setAttribute(IPFilteringPolicy.ATTR_DECISION, "BLACKLISTED");
+        verify(executionContext).setAttribute(IPFilteringPolicy.ATTR_DECISION, "BANNED");
+    }
+
+    @Test
+    public void shouldNotBanTrustedProxyForwardingNoClientIp() {
+        when(mockConfiguration.getWhitelistIps()).thenReturn(List.of("192.168.0.0/16"));
+        when(mockConfiguration.getClientIpSource()).thenReturn(ClientIpSource.X_FORWARDED_FOR);
+        when(mockConfiguration.getTrustedProxies()).thenReturn(List.of("10.0.0.1"));
+        when(mockConfiguration.getAutoBanThreshold()).thenReturn(2);
+        when(mockConfiguration.getAutoBanWindow()).thenReturn(60L);
+        when(mockConfiguration.getAutoBanDuration()).thenReturn(600L);
+        when(mockConfiguration.getAutoBanMaxEntries()).thenReturn(100);
+        when(mockRequest.remoteAddress()).thenReturn("10.0.0.1");
+        when(mockRequest.headers()).thenReturn(HttpHeaders.create());
+        IPFilteringPolicy policy = new IPFilteringPolicy(mockConfiguration);
+
+        policy.onRequest(executionContext, mockPolicychain);
+        policy.onRequest(executionContext, mockPolicychain);
+        policy.onRequest(executionContext, mockPolicychain);
+
+        verify(executionContext, times(3)).setAttribute(IPFilteringPolicy.ATTR_DECISION, "NOT_WHITELISTED");
+        verify(executionContext, never()).setAttribute(IPFilteringPolicy.ATTR_DECISION, "BANNED");
+    }
+
+    @Test
+    public void shouldBanForwardedClientIpDeniedByHostEntry() {
+        when(mockConfiguration.getBlacklistIps()).thenReturn(List.of("bad.example.com"));
+        when(mockConfiguration.getClientIpSource()).thenReturn(ClientIpSource.X_FORWARDED_FOR);
+        when(mockConfiguration.getTrustedProxies()).thenReturn(List.of("10.0.0.1"));
+        when(mockConfiguration.getAutoBanThreshold()).thenReturn(2);
+        when(mockConfiguration.getAutoBanWindow()).thenReturn(60L);
+        when(mockConfiguration.getAutoBanDuration()).thenReturn(600L);
+        when(mockConfiguration.getAutoBanMaxEntries()).thenReturn(100);
+        when(mockRequest.remoteAddress()).thenReturn("10.0.0.1");
+        when(mockRequest.headers()).thenReturn(HttpHeaders.create().set(HttpHeaderNames.X_FORWARDED_FOR, "203.0.113.7"));
+        IPFilteringPolicy policy = new IPFilteringPolicy(mockConfiguration);
+
+        try (MockedStatic<LazyDnsClient> lazyDnsMock = mockStatic(LazyDnsClient.class)) {
+            lazyDnsMock
+                .when(() -> LazyDnsClient.lookupAddresses(any(), any(), eq("bad.example.com"), any()))
+                .thenAnswer(invocation -> {
+                    var handler = invocation.getArgument(3, io.vertx.core.Handler.class);
+                    handler.handle(Future.succeededFuture(ResolvedAddresses.of(List.of("203.0.113.7"))));
+                    return null;
+                });
+            policy.onRequest(executionContext, mockPolicychain);
+            policy.onRequest(executionContext, mockPolicychain);
+            policy.onRequest(executionContext, mockPolicychain);
+        }
+
+        // The client is banned, not the proxy it comes through
+        verify(executionContext, times(2)).setAttribute(IPFilteringPolicy.ATTR_DECISION, "BLACKLISTED");
+        verify(executionContext).setAttribute(IPFilteringPolicy.ATTR_DECISION, "BANNED");
+    }
 }
@@ -0,0 +1,49 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.ipfiltering;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import org.junit.Test;
+
+public class InMemoryBanStoreTest {
+
+    @Test
+    public void shouldReturnEntriesAddedSinceVersion() {
+        InMemoryBanStore store = new InMemoryBanStore();
+        store.ban(List.of(new BanStore.BanEntry("10.0.0.1", 1_000), new BanStore.BanEntry("10.0.0.2", 2_000)));
+        BanStore.BanDelta delta = store.changesSince(0);
+
+        store.ban(List.of(new BanStore.BanEntry("10.0.0.3", 3_000)));
+
+        assertThat(delta.entries()).containsExactly(new BanStore.BanEntry("10.0.0.1", 1_000), new BanStore.BanEntry("10.0.0.2", 2_000));
+        assertThat(store.changesSince(delta.version()).entries()).containsExactly(new BanStore.BanEntry("10.0.0.3", 3_000));
+        assertThat(store.changesSince(store.changesSince(delta.version()).version()).entries()).isEmpty();
+    }
+
+    @Test
+    public void shouldOnlyKeepLatestEntryOfClientIp() {
+        InMemoryBanStore store = new InMemoryBanStore();
+        store.ban(List.of(new BanStore.BanEntry("10.0.0.1", 1_000), new BanStore.BanEntry("10.0.0.2", 2_000)));
+        store.ban(List.of(new BanStore.BanEntry("10.0.0.1", 0)));
+
+        assertThat(store.changesSince(0).entries()).containsExactly(
+            new BanStore.BanEntry("10.0.0.2", 2_000),
+            new BanStore.BanEntry("10.0.0.1", 0)
+        );
+    }
+}
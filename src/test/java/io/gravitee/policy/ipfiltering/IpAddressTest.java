@@ -0,0 +1,104 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.ipfiltering;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class IpAddressTest {
+
+    @Test
+    public void shouldParseIPv4() {
+        IpAddress address = IpAddress.parse("192.168.0.1");
+
+        assertNotNull(address);
+        assertFalse(address.isIpv6());
+        assertEquals(0xC0A80001L, address.low());
+        assertEquals("192.168.0.1", address.toString());
+    }
+
+    @Test
+    public void shouldParseIPv6() {
+        IpAddress address = IpAddress.parse("2001:db8::ff00:42:8329");
+
+        assertNotNull(address);
+        assertTrue(address.isIpv6());
+        assertEquals(0x20010DB800000000L, address.high());
+        assertEquals(0x0000FF0000428329L, address.low());
+        assertEquals("2001:db8:0:0:0:ff00:42:8329", address.toString());
+    }
+
+    @Test
+    public void shouldParseEquivalentIPv6Representations() {
+        assertEquals(IpAddress.parse("::1"), IpAddress.parse("0:0:0:0:0:0:0:1"));
+        assertEquals(IpAddress.parse("2001:DB8::1"), IpAddress.parse("2001:0db8:0000:0000:0000:0000:0000:0001"));
+        assertEquals(IpAddress.parse("fe80::1"), IpAddress.parse("fe80::1%eth0"));
+        assertEquals(IpAddress.ipv6(0, 0), IpAddress.parse("::"));
+    }
+
+    @Test
+    public void shouldParseIPv4MappedAddressAsIPv4() {
+        IpAddress address = IpAddress.parse("::ffff:192.168.0.1");
+
+        assertEquals(IpAddress.parse("192.168.0.1"), address);
+        assertFalse(address.isIpv6());
+        assertEquals(IpAddress.parse("192.168.0.1"), IpAddress.parse("0:0:0:0:0:ffff:c0a8:1"));
+        assertTrue(IpAddress.parse("::fffe:192.168.0.1").isIpv6());
+    }
+
+    @Test
+    public void shouldMatchIPv4EntriesWithIPv4MappedAddresses() {
+        assertTrue(IpRange.parse("10.0.0.0/8", false).contains(IpAddress.parse("::ffff:10.0.0.1")));
+        assertTrue(IpRange.parse("::ffff:10.0.0.0/104", true).contains(IpAddress.parse("10.0.0.1")));
+        assertFalse(IpRange.parse("::ffff:10.0.0.0/104", true).contains(IpAddress.parse("11.0.0.1")));
+        assertNull(IpRange.parse("::ffff:10.0.0.0/64", true));
+    }
+
+    @Test
+    public void shouldParseRangeOfSequence() {
+        assertEquals(IpAddress.parse("10.0.0.1"), IpAddress.parse("for=10.0.0.1;", 4, 12));
+    }
+
+    @Test
+    public void shouldNotParseInvalidLiterals() {
+        String[] invalids = {
+            "",
+            "localhost",
+            "unknown",
+            "1.2.3",
+            "1.2.3.4.5",
+            "256.0.0.1",
+            "01.2.3.4",
+            " 1.2.3.4",
+            "1.2.3.4:8080",
+            ":1",
+            "1:",
+            "1::2::3",
+            "1:2:3:4:5:6:7:8:9",
+            "1::2:3:4:5:6:7:8",
+            "1:2:3:4:5:6:7:8::",
+            "::1:2:3:4:5:6:7:8",
+            "1:2:3:4::5:6:7:8",
+            "12345::",
+            "g::1",
+        };
+        for (String invalid : invalids) {
+            assertNull("should not parse '" + invalid + "'", IpAddress.parse(invalid));
+        }
+        assertNull(IpAddress.parse(null));
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.ipfiltering;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+public class IpAddressTokenizerTest {
+
+    private static final IpMatcher MATCHER = IpPrefixTrie.compile(
+        List.of(IpRange.parse("192.168.0.2", false), IpRange.parse("2001:db8::/32", false))
+    );
+
+    @Test
+    public void shouldReturnIndexOfFirstMatch() {
+        String value = "localhost, 10.0.0.1,  192.168.0.2 , unknown";
+
+        IpAddressTokenizer.Match match = IpAddressTokenizer.firstMatch(value, MATCHER);
+
+        assertEquals(value.indexOf("192.168.0.2"), match.index());
+        assertEquals("192.168.0.2", IpAddressTokenizer.tokenAt(value, match.index()));
+    }
+
+    @Test
+    public void shouldReturnRuleMatchingToken() {
+        String value = "10.0.0.1, 2001:db8::1 ";
+
+        IpAddressTokenizer.Match match = IpAddressTokenizer.firstMatch(value, MATCHER);
+
+        assertEquals("2001:db8::1", IpAddressTokenizer.tokenAt(value, match.index()));
+        assertEquals("2001:db8::/32", match.rule().source());
+    }
+
+    @Test
+    public void shouldReturnIndexOfFirstAcceptedAddress() {
+        String value = "unknown, 10.0.0.1, 10.0.0.2";
+
+        int index = IpAddressTokenizer.indexOf(value, address -> address.toString().startsWith("10."));
+
+        assertEquals("10.0.0.1", IpAddressTokenizer.tokenAt(value, index));
+        assertEquals(-1, IpAddressTokenizer.indexOf(null, address -> true));
+    }
+
+    @Test
+    public void shouldNotMatchWithoutMatchingToken() {
+        assertNull(IpAddressTokenizer.firstMatch("10.0.0.1, not-an-ip", MATCHER));
+        assertNull(IpAddressTokenizer.firstMatch(null, MATCHER));
+    }
+
+    @Test
+    public void shouldMatchIpv6Token() {
+        String value = "10.0.0.1,2001:db8::1";
+
+        IpAddressTokenizer.Match match = IpAddressTokenizer.firstMatch(value, MATCHER);
+
+        assertEquals("2001:db8::1", IpAddressTokenizer.tokenAt(value, match.index()));
+    }
+
+    @Test
+    public void shouldNotMatch() {
+        assertNull(IpAddressTokenizer.firstMatch("localhost, 10.0.0.1, , unknown", MATCHER));
+        assertNull(IpAddressTokenizer.firstMatch("", MATCHER));
+        assertNull(IpAddressTokenizer.firstMatch("192.168.0.2", IpMatcher.NONE));
+    }
+
+    @Test
+    public void shouldStopAtFirstMatch() {
+        int[] parsed = new int[1];
+        IpMatcher counting = address -> {
+            parsed[0]++;
+            return MATCHER.match(address);
+        };
+
+        IpAddressTokenizer.firstMatch("192.168.0.2, 10.0.0.1, 10.0.0.2", counting);
+
+        assertEquals(1, parsed[0]);
+    }
+
+    @Test
+    public void shouldReturnIndexOfRightmostUntrustedAddress() {
+        IpMatcher trusted = IpPrefixTrie.compile(List.of(IpRange.parse("10.0.0.0/8", true)));
+        String value = "192.168.0.9, 192.168.0.5 ,10.0.0.2";
+
+        assertEquals("192.168.0.5", IpAddressTokenizer.tokenAt(value, IpAddressTokenizer.lastIndexOfUntrusted(value, 0, trusted)));
+        assertEquals("192.168.0.5", IpAddressTokenizer.tokenAt(value, IpAddressTokenizer.lastIndexOfUntrusted(value, 1, trusted)));
+        assertEquals("192.168.0.9", IpAddressTokenizer.tokenAt(value, IpAddressTokenizer.lastIndexOfUntrusted(value, 2, trusted)));
+        assertEquals("10.0.0.2", IpAddressTokenizer.tokenAt(value, IpAddressTokenizer.lastIndexOfUntrusted(value, 0, IpMatcher.NONE)));
+        assertEquals("192.168.0.9", IpAddressTokenizer.tokenAt(value, IpAddressTokenizer.lastIndexOfUntrusted(value, 5, IpMatcher.NONE)));
+    }
+
+    @Test
+    public void shouldParseEachToken() {
+        List<IpAddress> addresses = IpAddressTokenizer.parse(" 10.0.0.1,unknown , ::1");
+
+        assertEquals(Arrays.asList(IpAddress.parse("10.0.0.1"), null, IpAddress.parse("::1")), addresses);
+    }
+
+    @Test
+    public void shouldSplitLikeTrimmedList() {
+        assertEquals(List.of("localhost", "10.0.0.1", "", "unknown"), IpAddressTokenizer.split("localhost, 10.0.0.1,, unknown "));
+        assertEquals(List.of("127.0.0.1"), IpAddressTokenizer.split("127.0.0.1"));
+        assertEquals(Arrays.asList((String) null), IpAddressTokenizer.split(null));
+    }
+}
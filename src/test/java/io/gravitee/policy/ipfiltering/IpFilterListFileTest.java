@@ -0,0 +1,183 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.ipfiltering;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+import io.gravitee.gateway.api.ExecutionContext;
+import io.gravitee.node.api.configuration.Configuration;
+import io.vertx.core.Vertx;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class IpFilterListFileTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldReadEntriesIgnoringComments() throws IOException {
+        Path path = write("# corporate blocklist\n10.0.0.0/8, 192.168.0.1 # office\n\n  gravitee.io  \n192.168.0.1\n");
+
+        assertThat(List.copyOf(IpFilterListFile.read(path))).containsExactly("10.0.0.0/8", "192.168.0.1", "gravitee.io");
+    }
+
+    @Test
+    public void shouldLoadFileOnceForAllPolicies() throws IOException {
+        Path path = write("10.0.0.0/8\n");
+
+        IpFilterListFile file = IpFilterListFile.of(ctx(), path.getFileName().toString(), false, IpMatchStrategy.TRIE);
+
+        assertThat(IpFilterListFile.of(ctx(), path.toString(), false, IpMatchStrategy.TRIE)).isSameAs(file);
+        assertThat(file.get().ipMatcher().matches(IpAddress.parse("10.1.2.3"))).isTrue();
+        assertThat(file.get().ipMatcher().matches(IpAddress.parse("192.168.0.1"))).isFalse();
+    }
+
+    @Test
+    public void shouldReloadChangedFile() throws IOException {
+        Path path = write("10.0.0.0/8\n");
+        IpFilterListFile file = IpFilterListFile.of(ctx(), path.getFileName().toString(), false, IpMatchStrategy.TRIE);
+        IpFilterList loaded = file.get();
+
+        assertThat(file.reload()).isFalse();
+        assertThat(file.get()).isSameAs(loaded);
+
+        Files.writeString(path, "192.168.0.0/16\n");
+        Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis() + 60_000));
+
+        assertThat(file.reload()).isTrue();
+        assertThat(file.get().ipMatcher().matches(IpAddress.parse("10.1.2.3"))).isFalse();
+        assertThat(file.get().ipMatcher().matches(IpAddress.parse("192.168.1.1"))).isTrue();
+    }
+
+    @Test
+    public void shouldKeepPreviousListWhenFileCannotBeRead() throws IOException {
+        Path path = write("10.0.0.0/8\n");
+        IpFilterListFile file = IpFilterListFile.of(ctx(), path.getFileName().toString(), false, IpMatchStrategy.TRIE);
+
+        Files.delete(path);
+
+        assertThat(file.reload()).isFalse();
+        assertThat(file.get().ipMatcher().matches(IpAddress.parse("10.1.2.3"))).isTrue();
+    }
+
+    @Test
+    public void shouldMatchNothingWhenFileIsMissing() {
+        IpFilterListFile file = IpFilterListFile.of(ctx(), "missing.txt", false, IpMatchStrategy.TRIE);
+
+        assertThat(file.get()).isSameAs(IpFilterList.MATCHING_NOTHING);
+        assertThat(file.get().isEmpty()).isFalse();
+    }
+
+    @Test
+    public void shouldWatchFileOnce() throws IOException {
+        ExecutionContext ctx = ctx();
+        Vertx vertx = mock(Vertx.class);
+        when(ctx.getComponent(Vertx.class)).thenReturn(vertx);
+        IpFilterListFile file = IpFilterListFile.of(ctx, write("10.0.0.1\n").getFileName().toString(), false, IpMatchStrategy.TRIE);
+
+        file.watch(ctx);
+        file.watch(ctx);
+
+        verify(vertx, times(1)).setPeriodic(eq(30_000L), any());
+    }
+
+    @Test
+    public void shouldCancelTimerAndForgetFilesOnClose() throws IOException {
+        ExecutionContext ctx = ctx();
+        Vertx vertx = mock(Vertx.class);
+        when(ctx.getComponent(Vertx.class)).thenReturn(vertx);
+        when(vertx.setPeriodic(eq(30_000L), any())).thenReturn(42L);
+        String name = write("10.0.0.1\n").getFileName().toString();
+        IpFilterListFile file = IpFilterListFile.of(ctx, name, false, IpMatchStrategy.TRIE);
+        file.watch(ctx);
+
+        IpFilterListFile.closeAll();
+
+        verify(vertx).cancelTimer(42L);
+        assertThat(IpFilterListFile.of(ctx, name, false, IpMatchStrategy.TRIE)).isNotSameAs(file);
+    }
+
+    @Test
+    public void shouldMergeFileWithConfiguredEntries() throws IOException {
+        Path path = write("10.0.0.0/8\n");
+        String file = path.getFileName().toString();
+        IpFilterListTemplate template = IpFilterListTemplate.compile(List.of("192.168.0.1"), file, false, IpMatchStrategy.TRIE);
+        ExecutionContext ctx = ctx();
+
+        IpFilterList list = template.resolve(ctx);
+
+        assertThat(list.ipMatcher().matches(IpAddress.parse("10.1.2.3"))).isTrue();
+        assertThat(list.ipMatcher().matches(IpAddress.parse("192.168.0.1"))).isTrue();
+        assertThat(template.resolve(ctx)).isSameAs(list);
+    }
+
+    @Test
+    public void shouldResolveFileAgainstConfiguredDirectory() {
+        Path directory = folder.getRoot().toPath();
+        String base = directory.toString();
+
+        assertThat(IpFilterListFile.resolve(base, "lists/blocklist.txt")).isEqualTo(directory.resolve("lists/blocklist.txt"));
+        assertThat(IpFilterListFile.resolve(base, "lists/../blocklist.txt")).isEqualTo(directory.resolve("blocklist.txt"));
+        assertThat(IpFilterListFile.resolve(base, directory.resolve("a.txt").toString())).isEqualTo(directory.resolve("a.txt"));
+    }
+
+    @Test
+    public void shouldIgnoreFileOutsideConfiguredDirectory() throws IOException {
+        Path outside = folder.newFolder("outside").toPath().resolve("blocklist.txt");
+        Files.writeString(outside, "10.0.0.0/8\n");
+        String directory = folder.newFolder("lists").toPath().toString();
+
+        assertThat(IpFilterListFile.resolve(directory, "../outside/blocklist.txt")).isNull();
+        assertThat(IpFilterListFile.resolve(directory, outside.toString())).isNull();
+        assertThat(IpFilterListFile.resolve(directory, "/etc/passwd")).isNull();
+        assertThat(IpFilterListFile.resolve(directory, ".")).isNull();
+        assertThat(IpFilterListFile.resolve(null, "blocklist.txt")).isNull();
+    }
+
+    @Test
+    public void shouldMatchNothingWithoutConfiguredDirectory() throws IOException {
+        Path path = write("10.0.0.0/8\n");
+        ExecutionContext ctx = mock(ExecutionContext.class);
+        when(ctx.getComponent(Configuration.class)).thenReturn(mock(Configuration.class));
+
+        IpFilterListFile file = IpFilterListFile.of(ctx, path.toString(), false, IpMatchStrategy.TRIE);
+
+        assertThat(file).isSameAs(IpFilterListFile.UNAVAILABLE);
+        assertThat(file.get()).isSameAs(IpFilterList.MATCHING_NOTHING);
+    }
+
+    private ExecutionContext ctx() {
+        ExecutionContext ctx = mock(ExecutionContext.class);
+        Configuration configuration = mock(Configuration.class);
+        when(configuration.getProperty("policy.ip-filtering.file.directory", String.class)).thenReturn(folder.getRoot().toString());
+        when(ctx.getComponent(Configuration.class)).thenReturn(configuration);
+        return ctx;
+    }
+
+    private Path write(String content) throws IOException {
+        Path path = folder.newFile().toPath();
+        Files.writeString(path, content);
+        return path;
+    }
+}
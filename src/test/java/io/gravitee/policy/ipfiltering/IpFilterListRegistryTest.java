@@ -0,0 +1,60 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.ipfiltering;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import org.junit.Test;
+
+public class IpFilterListRegistryTest {
+
+    @Test
+    public void shouldShareListsWithTheSameEntries() {
+        IpFilterList list = IpFilterListRegistry.intern(List.of("10.0.0.0/8", "192.168.0.1", "gravitee.io"), false, IpMatchStrategy.TRIE);
+        IpFilterList other = IpFilterListRegistry.intern(List.of("gravitee.io", "10.0.0.0/8", "192.168.0.1"), false, IpMatchStrategy.TRIE);
+
+        assertThat(other).isSameAs(list);
+        assertThat(list.ipMatcher().matches(IpAddress.parse("10.1.2.3"))).isTrue();
+        assertThat(list.hosts()).containsExactly("gravitee.io");
+    }
+
+    @Test
+    public void shouldNotShareListsCompiledDifferently() {
+        List<String> entries = List.of("172.16.0.0/12");
+
+        IpFilterList list = IpFilterListRegistry.intern(entries, false, IpMatchStrategy.TRIE);
+
+        assertThat(IpFilterListRegistry.intern(entries, true, IpMatchStrategy.TRIE)).isNotSameAs(list);
+        assertThat(IpFilterListRegistry.intern(entries, false, IpMatchStrategy.RANGE_TABLE)).isNotSameAs(list);
+        assertThat(IpFilterListRegistry.intern(List.of("172.16.0.0/13"), false, IpMatchStrategy.TRIE)).isNotSameAs(list);
+    }
+
+    @Test
+    public void shouldShareStaticListsAcrossTemplates() {
+        List<String> blacklist = List.of("203.0.113.0/24, 198.51.100.0/24");
+
+        IpFilterListTemplate first = IpFilterListTemplate.compile(blacklist, false, IpMatchStrategy.TRIE);
+        IpFilterListTemplate second = IpFilterListTemplate.compile(blacklist, false, IpMatchStrategy.TRIE);
+
+        assertThat(second.resolve(null)).isSameAs(first.resolve(null));
+    }
+
+    @Test
+    public void shouldNotRegisterEmptyLists() {
+        assertThat(IpFilterListRegistry.intern(List.of(), false, IpMatchStrategy.TRIE)).isSameAs(IpFilterList.EMPTY);
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.ipfiltering;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import io.gravitee.el.TemplateEngine;
+import io.gravitee.gateway.api.ExecutionContext;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@SuppressWarnings("removal")
+@RunWith(MockitoJUnitRunner.class)
+public class IpFilterListTemplateTest {
+
+    @Mock
+    ExecutionContext executionContext;
+
+    @Mock
+    TemplateEngine templateEngine;
+
+    @Test
+    public void shouldNotEvaluateStaticEntries() {
+        IpFilterListTemplate template = IpFilterListTemplate.compile(
+            Arrays.asList("192.168.0.1,192.168.0.2", "10.0.0.0/8", "gravitee.io"),
+            false,
+            IpMatchStrategy.TRIE
+        );
+
+        IpFilterList list = template.resolve(executionContext);
+
+        assertFalse(template.isDynamic());
+        assertTrue(list.ipMatcher().matches(IpAddress.parse("192.168.0.2")));
+        assertTrue(list.ipMatcher().matches(IpAddress.parse("10.1.2.3")));
+        assertFalse(list.ipMatcher().matches(IpAddress.parse("192.168.0.3")));
+        assertEquals(List.of("gravitee.io"), list.hosts());
+        verify(executionContext, never()).getTemplateEngine();
+    }
+
+    @Test
+    public void shouldReturnSameListForStaticEntries() {
+        IpFilterListTemplate template = IpFilterListTemplate.compile(List.of("192.168.0.1"), false, IpMatchStrategy.TRIE);
+
+        assertSame(template.resolve(executionContext), template.resolve(executionContext));
+    }
+
+    @Test
+    public void shouldEvaluateExpressions() {
+        when(executionContext.getTemplateEngine()).thenReturn(templateEngine);
+        when(templateEngine.getValue("{#api.properties['ips']}", String.class)).thenReturn("192.168.0.3, backend.gravitee.io");
+        IpFilterListTemplate template = IpFilterListTemplate.compile(
+            Arrays.asList("192.168.0.1", "{#api.properties['ips']}"),
+            false,
+            IpMatchStrategy.TRIE
+        );
+
+        IpFilterList list = template.resolve(executionContext);
+
+        assertTrue(template.isDynamic());
+        assertTrue(list.ipMatcher().matches(IpAddress.parse("192.168.0.1")));
+        assertTrue(list.ipMatcher().matches(IpAddress.parse("192.168.0.3")));
+        assertEquals(List.of("backend.gravitee.io"), list.hosts());
+    }
+
+    @Test
+    public void shouldReuseCompiledListWhileExpressionValueIsUnchanged() {
+        when(executionContext.getTemplateEngine()).thenReturn(templateEngine);
+        when(templateEngine.getValue("{#api.properties['ips']}", String.class)).thenReturn("192.168.0.3");
+        IpFilterListTemplate template = IpFilterListTemplate.compile(List.of("{#api.properties['ips']}"), false, IpMatchStrategy.TRIE);
+
+        IpFilterList first = template.resolve(executionContext);
+
+        assertSame(first, template.resolve(executionContext));
+    }
+
+    @Test
+    public void shouldRecompileListWhenExpressionValueChanges() {
+        when(executionContext.getTemplateEngine()).thenReturn(templateEngine);
+        when(templateEngine.getValue("{#api.properties['ips']}", String.class)).thenReturn("192.168.0.3", "192.168.0.4");
+        IpFilterListTemplate template = IpFilterListTemplate.compile(List.of("{#api.properties['ips']}"), false, IpMatchStrategy.TRIE);
+
+        IpFilterList first = template.resolve(executionContext);
+        IpFilterList second = template.resolve(executionContext);
+
+        assertNotSame(first, second);
+        assertTrue(first.ipMatcher().matches(IpAddress.parse("192.168.0.3")));
+        assertFalse(second.ipMatcher().matches(IpAddress.parse("192.168.0.3")));
+        assertTrue(second.ipMatcher().matches(IpAddress.parse("192.168.0.4")));
+    }
+
+    @Test
+    public void shouldReuseCompiledListWhenExpressionValueComesBack() {
+        when(executionContext.getTemplateEngine()).thenReturn(templateEngine);
+        when(templateEngine.getValue("{#api.properties['ips']}", String.class)).thenReturn("192.168.0.3", "192.168.0.4", "192.168.0.3");
+        IpFilterListTemplate template = IpFilterListTemplate.compile(List.of("{#api.properties['ips']}"), false, IpMatchStrategy.TRIE);
+
+        IpFilterList first = template.resolve(executionContext);
+        template.resolve(executionContext);
+
+        assertSame(first, template.resolve(executionContext));
+    }
+
+    @Test
+    public void shouldReuseMergedListWhenExpressionValueComesBack() {
+        when(executionContext.getTemplateEngine()).thenReturn(templateEngine);
+        when(templateEngine.getValue("{#api.properties['ips']}", String.class)).thenReturn("192.168.0.3", "192.168.0.4", "192.168.0.3");
+        IpFilterListTemplate template = IpFilterListTemplate.compile(
+            List.of("192.168.0.1", "{#api.properties['ips']}"),
+            false,
+            IpMatchStrategy.TRIE
+        );
+
+        IpFilterList first = template.resolve(executionContext);
+        template.resolve(executionContext);
+
+        assertSame(first, template.resolve(executionContext));
+        assertTrue(first.ipMatcher().matches(IpAddress.parse("192.168.0.1")));
+    }
+
+    @Test
+    public void shouldBeEmptyWhenExpressionIsEmpty() {
+        when(executionContext.getTemplateEngine()).thenReturn(templateEngine);
+        when(templateEngine.getValue("{#api.properties['ips']}", String.class)).thenReturn("");
+        IpFilterListTemplate template = IpFilterListTemplate.compile(List.of("{#api.properties['ips']}"), false, IpMatchStrategy.TRIE);
+
+        assertTrue(template.resolve(executionContext).isEmpty());
+    }
+
+    @Test
+    public void shouldIgnoreNullEntries() {
+        IpFilterListTemplate template = IpFilterListTemplate.compile(Arrays.asList(null, "192.168.0.1"), false, IpMatchStrategy.TRIE);
+
+        assertTrue(template.resolve(executionContext).ipMatcher().matches(IpAddress.parse("192.168.0.1")));
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.ipfiltering;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import javax.management.ObjectName;
+import org.junit.Test;
+
+public class IpFilteringMetricsTest {
+
+    @Test
+    public void shouldCountDecisionsPerList() {
+        IpFilteringMetrics metrics = new IpFilteringMetrics();
+
+        metrics.decided(DecisionCache.Decision.ALLOWED);
+        metrics.decided(DecisionCache.Decision.blacklisted("10.0.0.1", List.of()));
+        metrics.decided(DecisionCache.Decision.notWhitelisted("10.0.0.2", List.of()));
+        metrics.decided(DecisionCache.Decision.notWhitelisted("10.0.0.3", List.of(), 1));
+        metrics.decided(DecisionCache.Decision.banned("10.0.0.4"));
+        metrics.autoBanned();
+
+        assertThat(metrics.getAllowed()).isEqualTo(1);
+        assertThat(metrics.getDeniedByBlacklist()).isEqualTo(1);
+        assertThat(metrics.getDeniedByWhitelist()).isEqualTo(2);
+        assertThat(metrics.getDeniedByAutoBan()).isEqualTo(1);
+        assertThat(metrics.getAutoBans()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldCountMatchesPerSource() {
+        IpFilteringMetrics metrics = new IpFilteringMetrics();
+
+        metrics.matched(IpRange.parse("10.0.0.1", false));
+        metrics.matched(IpRange.parse("10.0.0.0/8", false));
+        metrics.matched(IpRange.parse("2001:db8::/32", false));
+        metrics.hostMatched();
+
+        assertThat(metrics.getIpMatches()).isEqualTo(1);
+        assertThat(metrics.getCidrMatches()).isEqualTo(2);
+        assertThat(metrics.getHostMatches()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldComputeHitRatios() {
+        IpFilteringMetrics metrics = new IpFilteringMetrics();
+
+        assertThat(metrics.getDecisionCacheHitRatio()).isZero();
+        metrics.decisionCacheHit();
+        metrics.decisionCacheHit();
+        metrics.decisionCacheHit();
+        metrics.decisionCacheMiss();
+        metrics.dnsCacheHit();
+        metrics.dnsResolved(1_000_000, true);
+        metrics.dnsResolved(2_000_000, false);
+
+        assertThat(metrics.getDecisionCacheHitRatio()).isEqualTo(0.75);
+        assertThat(metrics.getDnsCacheHitRatio()).isEqualTo(1.0 / 3);
+        assertThat(metrics.getDnsResolutions()).isEqualTo(2);
+        assertThat(metrics.getDnsFailures()).isEqualTo(1);
+        assertThat(metrics.getDnsTimeMean()).isEqualTo(1_500_000);
+    }
+
+    @Test
+    public void shouldCountRefreshesApartFromLookups() {
+        IpFilteringMetrics metrics = new IpFilteringMetrics();
+
+        metrics.dnsRefreshed(true);
+        metrics.dnsRefreshed(false);
+
+        assertThat(metrics.getDnsRefreshes()).isEqualTo(2);
+        assertThat(metrics.getDnsRefreshFailures()).isEqualTo(1);
+        assertThat(metrics.getDnsResolutions()).isZero();
+        assertThat(metrics.getDnsFailures()).isZero();
+        assertThat(metrics.getDnsCacheHitRatio()).isZero();
+    }
+
+    @Test
+    public void shouldBeExposedThroughJmx() throws Exception {
+        IpFilteringMetrics.INSTANCE.matchTime(100);
+
+        ObjectName name = new ObjectName(IpFilteringMetrics.OBJECT_NAME);
+
+        assertThat(ManagementFactory.getPlatformMBeanServer().getAttribute(name, "MatchTimeMean")).isInstanceOf(Long.class);
+    }
+
+    @Test
+    public void shouldBeUnregisteredOnDeactivation() throws Exception {
+        ObjectName name = new ObjectName(IpFilteringMetrics.OBJECT_NAME);
+        IpFilteringMetrics.register(IpFilteringMetrics.INSTANCE);
+
+        try {
+            new IpFilteringPolicyContext().onDeactivation();
+
+            assertThat(ManagementFactory.getPlatformMBeanServer().isRegistered(name)).isFalse();
+        } finally {
+            IpFilteringMetrics.register(IpFilteringMetrics.INSTANCE);
+        }
+    }
+}
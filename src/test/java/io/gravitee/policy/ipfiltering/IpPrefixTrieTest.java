@@ -0,0 +1,95 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.ipfiltering;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.Test;
+
+public class IpPrefixTrieTest {
+
+    private static IpMatcher compile(boolean inclusiveHostCount, String... entries) {
+        return IpPrefixTrie.compile(
+            Stream.of(entries)
+                .map(entry -> IpRange.parse(entry, inclusiveHostCount))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList())
+        );
+    }
+
+    private static String match(IpMatcher matcher, String ip) {
+        IpRange range = matcher.match(IpAddress.parse(ip));
+        return range == null ? null : range.source();
+    }
+
+    @Test
+    public void shouldReturnNoneWhenEmpty() {
+        assertSame(IpMatcher.NONE, IpPrefixTrie.compile(List.of()));
+    }
+
+    @Test
+    public void shouldMatchLongestPrefix() {
+        IpMatcher matcher = compile(false, "10.0.0.0/8", "10.1.0.0/16", "10.1.2.3", "0.0.0.0/0");
+
+        assertEquals("10.1.2.3", match(matcher, "10.1.2.3"));
+        assertEquals("10.1.0.0/16", match(matcher, "10.1.2.4"));
+        assertEquals("10.0.0.0/8", match(matcher, "10.2.0.1"));
+        assertEquals("0.0.0.0/0", match(matcher, "192.168.0.1"));
+    }
+
+    @Test
+    public void shouldFallbackToShorterPrefixWhenNetworkAddressIsExcluded() {
+        IpMatcher matcher = compile(false, "192.168.0.0/16", "192.168.1.0/24");
+
+        assertEquals("192.168.0.0/16", match(matcher, "192.168.1.0"));
+        assertEquals("192.168.1.0/24", match(matcher, "192.168.1.1"));
+    }
+
+    @Test
+    public void shouldMatchIPv6() {
+        IpMatcher matcher = compile(false, "2001:db8::/64", "2001:db8::5", "192.168.0.0/24");
+
+        assertEquals("2001:db8::/64", match(matcher, "2001:db8::1"));
+        assertEquals("2001:db8::5", match(matcher, "2001:db8:0:0:0:0:0:5"));
+        assertNull(match(matcher, "2001:db9::1"));
+    }
+
+    @Test
+    public void shouldMatchLikeALinearScan() {
+        Random random = new Random(42);
+        List<IpRange> ranges = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            String entry = random.nextInt(4) + "." + random.nextInt(256) + "." + random.nextInt(256) + ".0/" + (8 + random.nextInt(25));
+            IpRange range = IpRange.parse(entry, random.nextBoolean());
+            if (range != null) {
+                ranges.add(range);
+            }
+        }
+        IpMatcher matcher = IpPrefixTrie.compile(ranges);
+
+        for (int i = 0; i < 100_000; i++) {
+            IpAddress address = IpAddress.ipv4(((long) random.nextInt(4) << 24) | random.nextInt(1 << 24));
+            boolean expected = ranges.stream().anyMatch(range -> range.contains(address));
+            assertEquals("unexpected result for " + address, expected, matcher.matches(address));
+        }
+    }
+}
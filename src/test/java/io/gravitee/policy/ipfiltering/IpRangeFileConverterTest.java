@@ -0,0 +1,70 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.ipfiltering;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+import io.gravitee.gateway.api.ExecutionContext;
+import io.gravitee.node.api.configuration.Configuration;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class IpRangeFileConverterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldConvertTextListIntoRangeFile() throws IOException {
+        Path input = folder.newFile("blocklist.txt").toPath();
+        Files.writeString(input, "# feed\n10.0.0.0/8, 10.1.0.0/16\n192.168.0.1\n2001:db8::/32\ngravitee.io\n");
+        Path output = folder.getRoot().toPath().resolve("blocklist.bin");
+
+        IpRangeFileConverter.Result result = IpRangeFileConverter.convert(input, output, false);
+
+        assertThat(result.ranges()).isEqualTo(3);
+        assertThat(result.skipped()).isEqualTo(1);
+        MappedIpRangeTable table = MappedIpRangeTable.open(output);
+        assertThat(table.matches(IpAddress.parse("10.1.2.3"))).isTrue();
+        assertThat(table.matches(IpAddress.parse("192.168.0.1"))).isTrue();
+        assertThat(table.matches(IpAddress.parse("2001:db8::1"))).isTrue();
+        assertThat(table.matches(IpAddress.parse("192.168.0.2"))).isFalse();
+    }
+
+    @Test
+    public void shouldBeLoadedAsListFile() throws IOException {
+        Path input = folder.newFile("allowlist.txt").toPath();
+        Files.writeString(input, "172.16.0.0/12\n");
+        Path output = folder.getRoot().toPath().resolve("allowlist.bin");
+        IpRangeFileConverter.convert(input, output, false);
+
+        ExecutionContext ctx = mock(ExecutionContext.class);
+        Configuration configuration = mock(Configuration.class);
+        when(configuration.getProperty("policy.ip-filtering.file.directory", String.class)).thenReturn(folder.getRoot().toString());
+        when(ctx.getComponent(Configuration.class)).thenReturn(configuration);
+
+        IpFilterList list = IpFilterListFile.of(ctx, "allowlist.bin", false, IpMatchStrategy.TRIE).get();
+
+        assertThat(list.ipMatcher()).isInstanceOf(MappedIpRangeTable.class);
+        assertThat(list.ipMatcher().matches(IpAddress.parse("172.20.0.1"))).isTrue();
+        assertThat(list.hosts()).isEmpty();
+    }
+}
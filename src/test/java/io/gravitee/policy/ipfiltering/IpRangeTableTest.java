@@ -0,0 +1,107 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.ipfiltering;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.Test;
+
+public class IpRangeTableTest {
+
+    private static IpMatcher compile(boolean inclusiveHostCount, String... entries) {
+        return IpRangeTable.compile(
+            Stream.of(entries)
+                .map(entry -> IpRange.parse(entry, inclusiveHostCount))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList())
+        );
+    }
+
+    @Test
+    public void shouldReturnNoneWhenEmpty() {
+        assertSame(IpMatcher.NONE, IpRangeTable.compile(List.of()));
+    }
+
+    @Test
+    public void shouldMergeOverlappingAndAdjacentRanges() {
+        IpRangeTable table = (IpRangeTable) compile(true, "10.0.0.0/24", "10.0.1.0/24", "10.0.0.128/25", "10.0.3.0/24", "2001:db8::/64");
+
+        assertEquals(3, table.size());
+        assertEquals("10.0.0.0-10.0.1.255", table.match(IpAddress.parse("10.0.1.1")).source());
+        assertNull(table.match(IpAddress.parse("10.0.2.1")));
+        assertNotNull(table.match(IpAddress.parse("10.0.3.255")));
+        assertNotNull(table.match(IpAddress.parse("2001:db8::ffff")));
+        assertNull(table.match(IpAddress.parse("2001:db8:0:1::")));
+    }
+
+    @Test
+    public void shouldMatchWithoutBuildingRule() {
+        IpMatcher table = compile(true, "10.0.0.0/24", "2001:db8::/64");
+
+        assertTrue(table.matches(IpAddress.parse("10.0.0.1")));
+        assertFalse(table.matches(IpAddress.parse("10.0.1.1")));
+        assertTrue(table.matches(IpAddress.parse("2001:db8::1")));
+        assertFalse(table.matches(IpAddress.parse("2001:db8:0:1::")));
+        assertFalse(table.matches(null));
+        assertEquals("2001:db8:0:0:0:0:0:0-2001:db8:0:0:ffff:ffff:ffff:ffff", table.match(IpAddress.parse("2001:db8::1")).source());
+    }
+
+    @Test
+    public void shouldKeepNetworkAndBroadcastAddressesExcluded() {
+        IpMatcher table = compile(false, "192.168.0.0/24", "192.168.1.0/24");
+
+        assertTrue(table.matches(IpAddress.parse("192.168.0.254")));
+        assertFalse(table.matches(IpAddress.parse("192.168.0.255")));
+        assertFalse(table.matches(IpAddress.parse("192.168.1.0")));
+        assertTrue(table.matches(IpAddress.parse("192.168.1.1")));
+    }
+
+    @Test
+    public void shouldHandleUpperAddresses() {
+        IpMatcher table = compile(true, "255.255.255.0/24", "ffff:ffff:ffff:ffff:ffff:ffff:ffff:0/112");
+
+        assertTrue(table.matches(IpAddress.parse("255.255.255.255")));
+        assertFalse(table.matches(IpAddress.parse("127.0.0.1")));
+        assertTrue(table.matches(IpAddress.parse("ffff:ffff:ffff:ffff:ffff:ffff:ffff:ffff")));
+    }
+
+    @Test
+    public void shouldMatchLikeThePrefixTrie() {
+        Random random = new Random(7);
+        List<IpRange> ranges = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            int firstOctet = random.nextInt(2) * 200;
+            String entry = firstOctet + "." + random.nextInt(256) + "." + random.nextInt(256) + ".0/" + (8 + random.nextInt(25));
+            IpRange range = IpRange.parse(entry, random.nextBoolean());
+            if (range != null) {
+                ranges.add(range);
+            }
+        }
+        IpMatcher table = IpRangeTable.compile(ranges);
+        IpMatcher trie = IpPrefixTrie.compile(ranges);
+
+        for (int i = 0; i < 100_000; i++) {
+            IpAddress address = IpAddress.ipv4(((long) (random.nextInt(2) * 200) << 24) | random.nextInt(1 << 24));
+            assertEquals("unexpected result for " + address, trie.matches(address), table.matches(address));
+        }
+    }
+}
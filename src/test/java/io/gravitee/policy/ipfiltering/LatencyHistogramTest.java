@@ -0,0 +1,66 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.ipfiltering;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void shouldBeEmpty() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertThat(histogram.count()).isZero();
+        assertThat(histogram.meanNanos()).isZero();
+        assertThat(histogram.percentileNanos(0.99)).isZero();
+    }
+
+    @Test
+    public void shouldComputeMean() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        histogram.record(100);
+        histogram.record(300);
+
+        assertThat(histogram.count()).isEqualTo(2);
+        assertThat(histogram.meanNanos()).isEqualTo(200);
+    }
+
+    @Test
+    public void shouldBoundPercentilesWithinFactorOfTwo() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 99; i++) {
+            histogram.record(1_000);
+        }
+        histogram.record(1_000_000);
+
+        assertThat(histogram.percentileNanos(0.5)).isBetween(1_000L, 2_000L);
+        assertThat(histogram.percentileNanos(0.99)).isBetween(1_000L, 2_000L);
+        assertThat(histogram.percentileNanos(1)).isBetween(1_000_000L, 2_000_000L);
+    }
+
+    @Test
+    public void shouldRecordNegativeDurationsAsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        histogram.record(-5);
+
+        assertThat(histogram.count()).isEqualTo(1);
+        assertThat(histogram.percentileNanos(1)).isZero();
+    }
+}
@@ -18,22 +18,30 @@ package io.gravitee.policy.ipfiltering;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.anyLong;
 import static org.mockito.Mockito.eq;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import io.gravitee.gateway.api.ExecutionContext;
 import io.gravitee.node.api.configuration.Configuration;
+import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
 import io.vertx.core.dns.DnsClient;
 import io.vertx.core.dns.DnsClientOptions;
+import java.util.ArrayList;
 import java.util.List;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
@@ -59,9 +67,9 @@ public class LazyDnsClientTest {
         when(executionContext.getComponent(Vertx.class)).thenReturn(vertx);
         when(vertx.createDnsClient(any(DnsClientOptions.class))).thenReturn(dnsClient);
 
-        // Force reset the static field dnsClient
+        // Force reset the static field state
         try {
-            java.lang.reflect.Field field = LazyDnsClient.class.getDeclaredField("dnsClient");
+            java.lang.reflect.Field field = LazyDnsClient.class.getDeclaredField("state");
             field.setAccessible(true);
             field.set(null, null);
         } catch (Exception e) {
@@ -120,4 +128,174 @@ public class LazyDnsClientTest {
             assertFalse(result.succeeded());
         });
     }
+
+    @Test
+    public void shouldServeSubsequentLookupsFromCache() {
+        List<String> ipv4 = List.of("192.168.0.1");
+        when(dnsClient.resolveA(eq("example.com"))).thenReturn(Future.succeededFuture(ipv4));
+
+        LazyDnsClient.lookup(executionContext, LookupIpVersion.IPV4, "example.com", result -> {});
+        LazyDnsClient.lookup(executionContext, LookupIpVersion.IPV4, "example.com", result -> {
+            assertTrue(result.succeeded());
+            assertEquals(ipv4, result.result());
+        });
+
+        verify(dnsClient, times(1)).resolveA("example.com");
+    }
+
+    @Test
+    public void shouldResolveEachTimeWhenCacheIsDisabled() {
+        when(configuration.getProperty("policy.ip-filtering.dns.cache.enabled", Boolean.class)).thenReturn(false);
+        when(dnsClient.resolveA(eq("example.com"))).thenReturn(Future.succeededFuture(List.of("192.168.0.1")));
+
+        LazyDnsClient.lookup(executionContext, LookupIpVersion.IPV4, "example.com", result -> {});
+        LazyDnsClient.lookup(executionContext, LookupIpVersion.IPV4, "example.com", result -> {});
+
+        verify(dnsClient, times(2)).resolveA("example.com");
+    }
+
+    @Test
+    public void shouldShareConcurrentLookupsOfTheSameHost() {
+        Promise<List<String>> resolution = Promise.promise();
+        when(dnsClient.resolveA(eq("example.com"))).thenReturn(resolution.future());
+
+        List<AsyncResult<List<String>>> results = new ArrayList<>();
+        LazyDnsClient.lookup(executionContext, LookupIpVersion.IPV4, "example.com", results::add);
+        LazyDnsClient.lookup(executionContext, LookupIpVersion.IPV4, "example.com", results::add);
+
+        verify(dnsClient, times(1)).resolveA("example.com");
+        assertThat(results).isEmpty();
+
+        resolution.complete(List.of("192.168.0.1"));
+
+        assertThat(results).hasSize(2).allSatisfy(result -> assertEquals(List.of("192.168.0.1"), result.result()));
+    }
+
+    @Test
+    public void shouldCountSharedLookupAsHit() {
+        Promise<List<String>> resolution = Promise.promise();
+        when(dnsClient.resolveA(eq("example.com"))).thenReturn(resolution.future());
+        long hits = IpFilteringMetrics.INSTANCE.getDnsCacheHits();
+        long resolutions = IpFilteringMetrics.INSTANCE.getDnsResolutions();
+
+        LazyDnsClient.lookup(executionContext, LookupIpVersion.IPV4, "example.com", result -> {});
+        LazyDnsClient.lookup(executionContext, LookupIpVersion.IPV4, "example.com", result -> {});
+        resolution.complete(List.of("192.168.0.1"));
+
+        assertEquals(hits + 1, IpFilteringMetrics.INSTANCE.getDnsCacheHits());
+        assertEquals(resolutions + 1, IpFilteringMetrics.INSTANCE.getDnsResolutions());
+    }
+
+    @Test
+    public void shouldResolveAgainOnceConcurrentLookupIsDone() {
+        when(configuration.getProperty("policy.ip-filtering.dns.cache.enabled", Boolean.class)).thenReturn(false);
+        Promise<List<String>> resolution = Promise.promise();
+        when(dnsClient.resolveA(eq("example.com"))).thenReturn(resolution.future());
+
+        LazyDnsClient.lookup(executionContext, LookupIpVersion.IPV4, "example.com", result -> {});
+        resolution.complete(List.of("192.168.0.1"));
+        LazyDnsClient.lookup(executionContext, LookupIpVersion.IPV4, "example.com", result -> {});
+
+        verify(dnsClient, times(2)).resolveA("example.com");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldRefreshCachedHostsInBackground() {
+        when(configuration.getProperty("policy.ip-filtering.dns.cache.refresh-ahead", Boolean.class)).thenReturn(true);
+        when(configuration.getProperty("policy.ip-filtering.dns.cache.ttl", Long.class)).thenReturn(15L);
+        when(dnsClient.resolveA(eq("example.com")))
+            .thenReturn(Future.succeededFuture(List.of("192.168.0.1")))
+            .thenReturn(Future.succeededFuture(List.of("192.168.0.2")));
+        long resolutions = IpFilteringMetrics.INSTANCE.getDnsResolutions();
+        long refreshes = IpFilteringMetrics.INSTANCE.getDnsRefreshes();
+
+        LazyDnsClient.lookup(executionContext, LookupIpVersion.IPV4, "example.com", result -> {});
+        LazyDnsClient.lookup(executionContext, LookupIpVersion.IPV4, "example.com", result -> {});
+        long generation = LazyDnsClient.generation();
+
+        ArgumentCaptor<Handler<Long>> refresh = ArgumentCaptor.forClass(Handler.class);
+        verify(vertx).setPeriodic(eq(10_000L), refresh.capture());
+        refresh.getValue().handle(0L);
+
+        verify(dnsClient, times(2)).resolveA("example.com");
+        assertNotEquals(generation, LazyDnsClient.generation());
+        assertEquals(resolutions + 1, IpFilteringMetrics.INSTANCE.getDnsResolutions());
+        assertEquals(refreshes + 1, IpFilteringMetrics.INSTANCE.getDnsRefreshes());
+        LazyDnsClient.lookup(executionContext, LookupIpVersion.IPV4, "example.com", result ->
+            assertEquals(List.of("192.168.0.2"), result.result())
+        );
+        verify(dnsClient, times(2)).resolveA("example.com");
+    }
+
+    @Test
+    public void shouldCancelRefreshAndCloseClientOnClose() {
+        when(configuration.getProperty("policy.ip-filtering.dns.cache.refresh-ahead", Boolean.class)).thenReturn(true);
+        when(vertx.setPeriodic(eq(10_000L), any())).thenReturn(42L);
+        LazyDnsClient.get(executionContext);
+
+        LazyDnsClient.close();
+        LazyDnsClient.get(executionContext);
+
+        verify(vertx).cancelTimer(42L);
+        verify(dnsClient).close();
+        verify(vertx, times(2)).createDnsClient(any(DnsClientOptions.class));
+    }
+
+    @Test
+    public void shouldNotScheduleRefreshByDefault() {
+        when(dnsClient.resolveA(eq("example.com"))).thenReturn(Future.succeededFuture(List.of("192.168.0.1")));
+
+        LazyDnsClient.lookup(executionContext, LookupIpVersion.IPV4, "example.com", result -> {});
+
+        verify(vertx, times(0)).setPeriodic(anyLong(), any());
+    }
+
+    @Test
+    public void shouldReverseLookupAndConfirmHost() {
+        when(dnsClient.reverseLookup("66.249.66.1")).thenReturn(Future.succeededFuture("crawl-66-249-66-1.googlebot.com."));
+        when(dnsClient.resolveA("crawl-66-249-66-1.googlebot.com")).thenReturn(Future.succeededFuture(List.of("66.249.66.1")));
+
+        List<String> hosts = new ArrayList<>();
+        LazyDnsClient.reverseLookup(executionContext, IpAddress.parse("66.249.66.1"), result -> hosts.add(result.result()));
+        LazyDnsClient.reverseLookup(executionContext, IpAddress.parse("66.249.66.1"), result -> hosts.add(result.result()));
+
+        assertThat(hosts).containsExactly("crawl-66-249-66-1.googlebot.com", "crawl-66-249-66-1.googlebot.com");
+        verify(dnsClient, times(1)).reverseLookup("66.249.66.1");
+    }
+
+    @Test
+    public void shouldNotChangeGenerationOnFirstReverseLookup() {
+        when(dnsClient.reverseLookup("10.0.0.1")).thenReturn(Future.failedFuture("NXDOMAIN"));
+        long generation = LazyDnsClient.generation();
+
+        LazyDnsClient.reverseLookup(executionContext, IpAddress.parse("10.0.0.1"), result -> {});
+
+        assertEquals(generation, LazyDnsClient.generation());
+    }
+
+    @Test
+    public void shouldNotTrustUnconfirmedReverseLookup() {
+        when(dnsClient.reverseLookup("10.0.0.1")).thenReturn(Future.succeededFuture("crawl.googlebot.com"));
+        when(dnsClient.resolveA("crawl.googlebot.com")).thenReturn(Future.succeededFuture(List.of("66.249.66.1")));
+
+        List<AsyncResult<String>> results = new ArrayList<>();
+        LazyDnsClient.reverseLookup(executionContext, IpAddress.parse("10.0.0.1"), results::add);
+
+        assertThat(results).hasSize(1);
+        assertTrue(results.get(0).succeeded());
+        assertThat(results.get(0).result()).isNull();
+    }
+
+    @Test
+    public void shouldReportNoHostWhenReverseLookupFails() {
+        when(dnsClient.reverseLookup("10.0.0.1")).thenReturn(Future.failedFuture("NXDOMAIN"));
+
+        List<AsyncResult<String>> results = new ArrayList<>();
+        LazyDnsClient.reverseLookup(executionContext, IpAddress.parse("10.0.0.1"), results::add);
+
+        assertThat(results).hasSize(1);
+        assertTrue(results.get(0).succeeded());
+        assertThat(results.get(0).result()).isNull();
+    }
 }
@@ -0,0 +1,110 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.ipfiltering;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MappedIpRangeTableTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldMatchLikeTheInMemoryTable() throws IOException {
+        Random random = new Random(42);
+        List<IpRange> ranges = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            IpAddress network = IpAddress.ipv4(random.nextLong() & 0xFFFFFFFFL);
+            ranges.add(IpRange.parse(network + "/" + (8 + random.nextInt(25)), random.nextBoolean()));
+        }
+        for (int i = 0; i < 1_000; i++) {
+            IpAddress network = IpAddress.ipv6(random.nextLong(), random.nextLong());
+            ranges.add(IpRange.parse(network + "/" + (16 + random.nextInt(113)), false));
+        }
+        ranges.removeIf(range -> range == null);
+        IpRangeTable table = (IpRangeTable) IpRangeTable.compile(ranges);
+
+        MappedIpRangeTable mapped = MappedIpRangeTable.open(write(table));
+
+        assertEquals(table.size(), mapped.size());
+        for (int i = 0; i < 100_000; i++) {
+            IpAddress address = i % 3 == 0
+                ? IpAddress.ipv6(random.nextLong(), random.nextLong())
+                : IpAddress.ipv4(random.nextLong() & 0xFFFFFFFFL);
+            IpRange expected = table.match(address);
+            IpRange actual = mapped.match(address);
+            assertEquals(String.valueOf(expected), String.valueOf(actual));
+            assertEquals(actual != null, mapped.matches(address));
+        }
+    }
+
+    @Test
+    public void shouldMatchBoundsOfTheAddressSpace() throws IOException {
+        List<IpRange> ranges = List.of(
+            IpRange.parse("0.0.0.1", false),
+            IpRange.parse("255.255.255.255", false),
+            IpRange.parse("::", false),
+            IpRange.parse("ffff:ffff:ffff:ffff:ffff:ffff:ffff:ffff", false)
+        );
+
+        MappedIpRangeTable mapped = MappedIpRangeTable.open(write((IpRangeTable) IpRangeTable.compile(ranges)));
+
+        assertThat(mapped.matches(IpAddress.parse("0.0.0.1"))).isTrue();
+        assertThat(mapped.matches(IpAddress.parse("255.255.255.255"))).isTrue();
+        assertThat(mapped.matches(IpAddress.parse("255.255.255.254"))).isFalse();
+        assertThat(mapped.matches(IpAddress.parse("::"))).isTrue();
+        assertThat(mapped.matches(IpAddress.parse("ffff:ffff:ffff:ffff:ffff:ffff:ffff:ffff"))).isTrue();
+        assertThat(mapped.matches(IpAddress.parse("::1"))).isFalse();
+    }
+
+    @Test
+    public void shouldRejectFilesThatAreNotRangeFiles() throws IOException {
+        Path path = folder.newFile().toPath();
+        Files.writeString(path, "10.0.0.0/8\n192.168.0.0/16\n");
+
+        assertThat(MappedIpRangeTable.isRangeFile(path)).isFalse();
+        assertThrows(IOException.class, () -> MappedIpRangeTable.open(path));
+    }
+
+    @Test
+    public void shouldRejectTruncatedFiles() throws IOException {
+        Path path = write((IpRangeTable) IpRangeTable.compile(List.of(IpRange.parse("10.0.0.0/8", false))));
+        byte[] content = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(content, content.length - 1));
+
+        assertThat(MappedIpRangeTable.isRangeFile(path)).isTrue();
+        assertThrows(IOException.class, () -> MappedIpRangeTable.open(path));
+    }
+
+    private Path write(IpRangeTable table) throws IOException {
+        Path path = folder.getRoot().toPath().resolve("ranges.bin");
+        MappedIpRangeTable.write(table, path);
+        return path;
+    }
+}
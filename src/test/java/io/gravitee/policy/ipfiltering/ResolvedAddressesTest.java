@@ -0,0 +1,65 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.ipfiltering;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import org.junit.Test;
+
+public class ResolvedAddressesTest {
+
+    @Test
+    public void shouldMatchAddressesWhateverTheirRepresentation() {
+        ResolvedAddresses resolved = ResolvedAddresses.of(List.of("93.184.216.34", "2001:0db8:0000:0000:0000:0000:0000:0001", "::1"));
+
+        assertThat(resolved.contains(IpAddress.parse("93.184.216.34"))).isTrue();
+        assertThat(resolved.contains(IpAddress.parse("2001:db8::1"))).isTrue();
+        assertThat(resolved.contains(IpAddress.parse("0:0:0:0:0:0:0:1"))).isTrue();
+        assertThat(resolved.contains(IpAddress.parse("93.184.216.35"))).isFalse();
+        assertThat(resolved.contains(null)).isFalse();
+    }
+
+    @Test
+    public void shouldMatchAnyOfTheCandidates() {
+        ResolvedAddresses resolved = ResolvedAddresses.of(List.of("10.0.0.1"));
+
+        assertThat(resolved.containsAny(List.of(IpAddress.parse("192.168.0.1"), IpAddress.parse("10.0.0.1")))).isTrue();
+        assertThat(resolved.containsAny(List.of(IpAddress.parse("192.168.0.1")))).isFalse();
+    }
+
+    @Test
+    public void shouldIgnoreValuesThatAreNotIpLiterals() {
+        ResolvedAddresses resolved = ResolvedAddresses.of(List.of("10.0.0.1", "gravitee.io", ""));
+
+        assertThat(resolved.size()).isEqualTo(1);
+        assertThat(resolved.values()).containsExactly("10.0.0.1", "gravitee.io", "");
+    }
+
+    @Test
+    public void shouldBeEmptyWithoutValues() {
+        assertThat(ResolvedAddresses.of(List.of())).isSameAs(ResolvedAddresses.EMPTY);
+        assertThat(ResolvedAddresses.of(null).size()).isZero();
+    }
+
+    @Test
+    public void shouldBeEqualWithSameAddresses() {
+        ResolvedAddresses resolved = ResolvedAddresses.of(List.of("10.0.0.1", "::1"));
+
+        assertThat(resolved).isEqualTo(ResolvedAddresses.of(List.of("0:0:0:0:0:0:0:1", "10.0.0.1")));
+        assertThat(ResolvedAddresses.of(List.of("10.0.0.1"))).isNotEqualTo(ResolvedAddresses.of(List.of("10.0.0.2")));
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.ipfiltering;
+
+import static org.junit.Assert.*;
+
+import io.vertx.core.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+
+public class ReverseDnsCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    public void shouldCacheVerifiedHostUntilTtlExpires() {
+        ReverseDnsCache cache = new ReverseDnsCache(60, 10, now::get);
+        IpAddress address = IpAddress.parse("66.249.66.1");
+
+        cache.put(address, Future.succeededFuture("crawl-66-249-66-1.googlebot.com"));
+
+        assertEquals("crawl-66-249-66-1.googlebot.com", cache.get(IpAddress.parse("66.249.66.1")).result());
+        now.addAndGet(TimeUnit.SECONDS.toNanos(60));
+        assertNull(cache.get(address));
+    }
+
+    @Test
+    public void shouldCacheAddressesWithoutVerifiedHost() {
+        ReverseDnsCache cache = new ReverseDnsCache(60, 10, now::get);
+        IpAddress address = IpAddress.parse("2001:db8::1");
+
+        cache.put(address, Future.succeededFuture());
+
+        assertNotNull(cache.get(address));
+        assertNull(cache.get(address).result());
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedEntriesWhenFull() {
+        ReverseDnsCache cache = new ReverseDnsCache(60, 1, now::get);
+
+        cache.put(IpAddress.parse("10.0.0.1"), Future.succeededFuture("a.gravitee.io"));
+        cache.put(IpAddress.parse("10.0.0.2"), Future.succeededFuture("b.gravitee.io"));
+
+        assertEquals(1, cache.size());
+        assertNull(cache.get(IpAddress.parse("10.0.0.1")));
+        assertEquals("b.gravitee.io", cache.get(IpAddress.parse("10.0.0.2")).result());
+    }
+
+    @Test
+    public void shouldNotCacheWhenDisabled() {
+        ReverseDnsCache.DISABLED.put(IpAddress.parse("10.0.0.1"), Future.succeededFuture("gravitee.io"));
+
+        assertNull(ReverseDnsCache.DISABLED.get(IpAddress.parse("10.0.0.1")));
+    }
+
+    @Test
+    public void shouldReportChangedHosts() {
+        ReverseDnsCache cache = new ReverseDnsCache(60, 10, now::get);
+        IpAddress address = IpAddress.parse("66.249.66.1");
+
+        assertFalse(cache.put(address, Future.succeededFuture("crawl.googlebot.com")));
+        assertFalse(cache.put(address, Future.succeededFuture("crawl.googlebot.com")));
+        assertFalse(cache.put(IpAddress.parse("66.249.66.2"), Future.succeededFuture()));
+        assertTrue(cache.put(address, Future.succeededFuture()));
+        assertFalse(cache.put(address, Future.succeededFuture()));
+    }
+
+    @Test
+    public void shouldReportChangedHostsOnceExpired() {
+        ReverseDnsCache cache = new ReverseDnsCache(60, 10, now::get);
+        IpAddress address = IpAddress.parse("66.249.66.1");
+
+        assertFalse(cache.put(address, Future.succeededFuture("crawl.googlebot.com")));
+        now.addAndGet(TimeUnit.SECONDS.toNanos(60));
+        assertNull(cache.get(address));
+        assertTrue(cache.put(address, Future.succeededFuture()));
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.ipfiltering;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+public class SlidingWindowCounterTest {
+
+    private static final long WINDOW = 1_000;
+
+    @Test
+    public void shouldCountEventsOfCurrentWindow() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(WINDOW, 0);
+
+        assertThat(counter.increment(100)).isEqualTo(1);
+        assertThat(counter.increment(200)).isEqualTo(2);
+        assertThat(counter.increment(999)).isEqualTo(3);
+    }
+
+    @Test
+    public void shouldWeightEventsOfPreviousWindow() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(WINDOW, 0);
+        for (int i = 0; i < 10; i++) {
+            counter.increment(100);
+        }
+
+        // Half of the previous window is still covered by the sliding window
+        assertThat(counter.increment(1_500)).isEqualTo(6);
+    }
+
+    @Test
+    public void shouldForgetEventsOlderThanTwoWindows() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(WINDOW, 0);
+        counter.increment(100);
+
+        assertThat(counter.increment(3_000)).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldSupportNegativeTimes() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(WINDOW, -1_500);
+
+        assertThat(counter.increment(-1_500)).isEqualTo(1);
+        assertThat(counter.increment(-500)).isEqualTo(1.5);
+    }
+}